@@ -0,0 +1,165 @@
+package com.claudenpc;
+
+import com.claudenpc.ClaudeAPIClient.Message;
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Lightable;
+import org.bukkit.block.data.type.Comparator;
+import org.bukkit.block.data.type.Repeater;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Representative inputs shared by the benchmarks, built without a server
+ */
+final class BenchmarkData {
+
+    static final Logger LOGGER = Logger.getLogger("ClaudeNPC-Benchmarks");
+
+    static {
+        // Unknown states are part of the block benchmarks; their warnings aren't
+        LOGGER.setLevel(Level.SEVERE);
+    }
+
+    private static final String[] WORDS = {"the", "village", "redstone", "quantum", "circuit", "lever",
+            "traveller", "north", "gate", "phase", "crystal", "merchant", "build", "torch", "river"};
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Deterministic prose of roughly the given length, in sentences
+     */
+    static String text(Random random, int length) {
+        StringBuilder text = new StringBuilder(length + 16);
+        int words = 0;
+        while (text.length() < length) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            text.append(words == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+            words++;
+            if (words >= 8 + random.nextInt(8)) {
+                text.append(". ");
+                words = 0;
+            } else {
+                text.append(' ');
+            }
+        }
+        return text.toString().trim();
+    }
+
+    /**
+     * A conversation alternating user and assistant turns
+     */
+    static List<Message> conversation(int turns, int messageLength) {
+        Random random = new Random(42);
+        List<Message> messages = new ArrayList<>(turns);
+        for (int i = 0; i < turns; i++) {
+            messages.add(new Message(i % 2 == 0 ? "user" : "assistant", text(random, messageLength)));
+        }
+        return messages;
+    }
+
+    /**
+     * A non-streaming messages response
+     */
+    static String response(int textLength) {
+        return "{\"id\":\"msg_01\",\"type\":\"message\",\"role\":\"assistant\",\"model\":\"claude-sonnet-4\","
+                + "\"content\":[{\"type\":\"text\",\"text\":\"" + text(new Random(7), textLength) + "\"}],"
+                + "\"stop_reason\":\"end_turn\",\"stop_sequence\":null,"
+                + "\"usage\":{\"input_tokens\":812,\"cache_creation_input_tokens\":0,"
+                + "\"cache_read_input_tokens\":640,\"output_tokens\":96}}";
+    }
+
+    /**
+     * A streamed messages response, split into deltas of a few words as the API sends them
+     */
+    static String eventStream(int textLength) {
+        String text = text(new Random(7), textLength);
+        StringBuilder stream = new StringBuilder();
+        event(stream, "message_start", "{\"type\":\"message_start\",\"message\":{\"id\":\"msg_01\",\"type\":\"message\","
+                + "\"role\":\"assistant\",\"content\":[],\"usage\":{\"input_tokens\":812,"
+                + "\"cache_read_input_tokens\":640,\"output_tokens\":1}}}");
+        event(stream, "content_block_start", "{\"type\":\"content_block_start\",\"index\":0,"
+                + "\"content_block\":{\"type\":\"text\",\"text\":\"\"}}");
+        for (int i = 0; i < text.length(); i += 24) {
+            String delta = text.substring(i, Math.min(text.length(), i + 24));
+            event(stream, "content_block_delta", "{\"type\":\"content_block_delta\",\"index\":0,"
+                    + "\"delta\":{\"type\":\"text_delta\",\"text\":\"" + delta + "\"}}");
+        }
+        event(stream, "content_block_stop", "{\"type\":\"content_block_stop\",\"index\":0}");
+        event(stream, "message_delta", "{\"type\":\"message_delta\",\"delta\":{\"stop_reason\":\"end_turn\"},"
+                + "\"usage\":{\"output_tokens\":96}}");
+        event(stream, "message_stop", "{\"type\":\"message_stop\"}");
+        return stream.toString();
+    }
+
+    private static void event(StringBuilder stream, String type, String data) {
+        stream.append("event: ").append(type).append('\n').append("data: ").append(data).append("\n\n");
+    }
+
+    /**
+     * Block lines as a build script prints them: mostly single objects, some arrays
+     */
+    static List<String> blockLines(int count) {
+        Random random = new Random(11);
+        String[] blocks = {
+                "{\"material\":\"minecraft:redstone_wire\"}",
+                "{\"material\":\"stone\"}",
+                "{\"material\":\"minecraft:repeater\",\"properties\":{\"facing\":\"east\",\"delay\":2}}",
+                "{\"material\":\"minecraft:comparator\",\"properties\":{\"facing\":\"south\",\"mode\":\"subtract\"}}",
+                "{\"material\":\"minecraft:redstone_torch\",\"properties\":{\"lit\":true}}",
+                "{\"material\":\"minecraft:redstone_lamp\",\"properties\":{\"lit\":false}}",
+        };
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String block = blocks[random.nextInt(blocks.length)];
+            String positioned = "{\"x\":" + random.nextInt(64) + ",\"y\":" + random.nextInt(16) + ",\"z\":"
+                    + random.nextInt(64) + "," + block.substring(1);
+            lines.add(i % 10 == 9 ? "[" + positioned + "," + positioned + "]" : positioned);
+        }
+        return lines;
+    }
+
+    /**
+     * A resolver whose BlockData are stand-ins implementing the interfaces the resolver
+     * checks for, so the property handling runs as it does on a server
+     */
+    static BlockStateResolver resolver() {
+        return new BlockStateResolver(LOGGER, BenchmarkData::blockData,
+                state -> blockData(Material.valueOf(state.replaceFirst("^minecraft:", "")
+                        .replaceFirst("\\[.*", "").toUpperCase(Locale.ROOT))));
+    }
+
+    private static BlockData blockData(Material material) {
+        Class<?> type = switch (material) {
+            case REPEATER -> Repeater.class;
+            case COMPARATOR -> Comparator.class;
+            case REDSTONE_TORCH, REDSTONE_LAMP -> Lightable.class;
+            default -> BlockData.class;
+        };
+        return (BlockData) Proxy.newProxyInstance(BenchmarkData.class.getClassLoader(), new Class<?>[] {type},
+                (proxy, method, args) -> {
+                    Class<?> returnType = method.getReturnType();
+                    if (method.getName().equals("getMaterial")) {
+                        return material;
+                    } else if (method.getName().equals("toString") || method.getName().equals("getAsString")) {
+                        return "minecraft:" + material.name().toLowerCase(Locale.ROOT);
+                    } else if (method.getName().equals("hashCode")) {
+                        return System.identityHashCode(proxy);
+                    } else if (method.getName().equals("equals")) {
+                        return proxy == args[0];
+                    } else if (returnType == boolean.class) {
+                        return false;
+                    } else if (returnType == int.class) {
+                        return 0;
+                    }
+                    return null;
+                });
+    }
+}
@@ -0,0 +1,49 @@
+package com.claudenpc;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the benchmarks with JSON results written to results/jmh-&lt;version&gt;.json
+ *
+ * Takes the usual JMH command line (benchmark regexps, -f, -wi, -i, -rf, -rff, ...);
+ * only the result file defaults differ, so every run leaves a machine-readable record
+ * that can be compared with earlier releases.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        if (commandLine.shouldList()) {
+            new Runner(commandLine).list();
+            return;
+        }
+
+        String version = BenchmarkRunner.class.getPackage().getImplementationVersion();
+        File results = new File("results", "jmh-" + (version != null ? version : "dev") + ".json");
+        if (results.getParentFile().mkdirs()) {
+            System.out.println("Created " + results.getParentFile().getAbsolutePath());
+        }
+
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .resultFormat(commandLine.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(commandLine.getResult().orElse(results.getPath()))
+                .build();
+        new Runner(options).run();
+    }
+}
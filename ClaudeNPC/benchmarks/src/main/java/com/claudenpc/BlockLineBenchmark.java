@@ -0,0 +1,65 @@
+package com.claudenpc;
+
+import org.json.simple.parser.JSONParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+
+/**
+ * Parsing build script output into block placements, as buildStructureFromPython does
+ * for every line a script prints
+ */
+@State(Scope.Thread)
+public class BlockLineBenchmark {
+
+    private static final String STATE = "minecraft:comparator[facing=east,mode=compare]";
+
+    private List<String> lines;
+    private JSONParser parser;
+    private BlockStateResolver resolver;
+    private int next;
+
+    @Setup
+    public void setup() {
+        lines = BenchmarkData.blockLines(1024);
+        parser = new JSONParser();
+        resolver = BenchmarkData.resolver();
+    }
+
+    /**
+     * One line against a warm state cache, the usual case within a build
+     */
+    @Benchmark
+    public void parseLine(Blackhole blackhole) {
+        PythonBridge.parseBlockLine(parser, lines.get(next++ & 1023), resolver, blackhole::consume);
+    }
+
+    /**
+     * A whole 1024-line build with a fresh cache, as for the first build after startup
+     */
+    @Benchmark
+    public void parseBuildCold(Blackhole blackhole) {
+        BlockStateResolver fresh = BenchmarkData.resolver();
+        for (String line : lines) {
+            PythonBridge.parseBlockLine(parser, line, fresh, blackhole::consume);
+        }
+    }
+
+    /**
+     * A full state string, as blueprints are resolved
+     */
+    @Benchmark
+    public Object resolveState() {
+        return resolver.resolve(STATE);
+    }
+
+    @Setup(Level.Iteration)
+    public void warm() {
+        resolver.resolve(STATE);
+    }
+}
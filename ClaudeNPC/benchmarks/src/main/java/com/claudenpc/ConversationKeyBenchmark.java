@@ -0,0 +1,69 @@
+package com.claudenpc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keying conversations by player and NPC, as ConversationManager does on every message
+ * and when a player's conversations are cleared
+ */
+@State(Scope.Benchmark)
+public class ConversationKeyBenchmark {
+
+    @Param({"100", "5000"})
+    public int conversations;
+
+    private UUID[] players;
+    private UUID[] npcs;
+    private Map<String, Object> map;
+    private int next;
+
+    @Setup
+    public void setup() {
+        players = new UUID[conversations];
+        npcs = new UUID[conversations];
+        map = new ConcurrentHashMap<>();
+        for (int i = 0; i < conversations; i++) {
+            players[i] = UUID.randomUUID();
+            npcs[i] = UUID.randomUUID();
+            map.put(ConversationManager.conversationKey(players[i], npcs[i]), new Object());
+        }
+    }
+
+    @Benchmark
+    public String key() {
+        int i = next++ % conversations;
+        return ConversationManager.conversationKey(players[i], npcs[i]);
+    }
+
+    /**
+     * The lookup sendMessage does for an existing conversation
+     */
+    @Benchmark
+    public Object lookup() {
+        int i = next++ % conversations;
+        return map.computeIfAbsent(ConversationManager.conversationKey(players[i], npcs[i]), k -> new Object());
+    }
+
+    /**
+     * The prefix scan clearPlayerHistory does over every conversation
+     */
+    @Benchmark
+    public int findPlayer() {
+        String prefix = players[next++ % conversations].toString();
+        int found = 0;
+        for (String key : map.keySet()) {
+            if (key.startsWith(prefix)) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,72 @@
+package com.claudenpc;
+
+import com.claudenpc.ClaudeAPIClient.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Conversation history: appending turns and taking the snapshot a request is built from
+ *
+ * ConversationManager keeps each history in a {@link MessageBuffer}; the contended group
+ * has one writer appending while readers snapshot, as happens when a reply lands while
+ * the next message is being sent.
+ */
+@State(Scope.Group)
+public class MessageBufferBenchmark {
+
+    @Param({"10", "50"})
+    public int capacity;
+
+    private MessageBuffer buffer;
+    private Message[] messages;
+    private int next;
+
+    @Setup
+    public void setup() {
+        buffer = new MessageBuffer(capacity);
+        messages = BenchmarkData.conversation(64, 120).toArray(new Message[0]);
+        for (int i = 0; i < capacity; i++) {
+            buffer.add(messages[i % messages.length]);
+        }
+    }
+
+    @Benchmark
+    public void add() {
+        buffer.add(messages[next++ & 63]);
+    }
+
+    @Benchmark
+    public List<Message> snapshot() {
+        return buffer.snapshot();
+    }
+
+    @Benchmark
+    public Message snapshotAndIterate() {
+        Message last = null;
+        for (Message message : buffer.snapshot()) {
+            last = message;
+        }
+        return last;
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void contendedAdd() {
+        buffer.add(messages[next++ & 63]);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public List<Message> contendedSnapshot() {
+        return buffer.snapshot();
+    }
+}
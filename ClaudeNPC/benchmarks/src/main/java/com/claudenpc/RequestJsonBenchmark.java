@@ -0,0 +1,45 @@
+package com.claudenpc;
+
+import com.claudenpc.ClaudeAPIClient.Message;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Serializing the messages request, as sendMessage does for every turn (and retry)
+ */
+@State(Scope.Thread)
+public class RequestJsonBenchmark {
+
+    @Param({"2", "10", "40"})
+    public int turns;
+
+    private List<Message> messages;
+    private List<String> systemBlocks;
+    private Buffer sink;
+
+    @Setup
+    public void setup() {
+        messages = BenchmarkData.conversation(turns, 240);
+        systemBlocks = List.of(BenchmarkData.text(new Random(3), 1200), BenchmarkData.text(new Random(5), 400));
+        sink = new Buffer();
+    }
+
+    /**
+     * Written into a reused buffer, standing in for the connection's sink
+     */
+    @Benchmark
+    public long write() throws IOException {
+        MessagesJson.writeRequest(sink, messages, systemBlocks, "claude-sonnet-4-20250514", 1024, true, true);
+        long size = sink.size();
+        sink.clear();
+        return size;
+    }
+}
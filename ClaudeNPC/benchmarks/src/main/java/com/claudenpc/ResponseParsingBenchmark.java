@@ -0,0 +1,45 @@
+package com.claudenpc;
+
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parsing a reply, whole and streamed, including usage accounting and sentence chunking
+ */
+@State(Scope.Benchmark)
+public class ResponseParsingBenchmark {
+
+    @Param({"200", "2000"})
+    public int replyLength;
+
+    private String response;
+    private byte[] eventStream;
+    private UsageTracker usageTracker;
+
+    @Setup
+    public void setup() {
+        response = BenchmarkData.response(replyLength);
+        eventStream = BenchmarkData.eventStream(replyLength).getBytes(StandardCharsets.UTF_8);
+        usageTracker = new UsageTracker();
+    }
+
+    @Benchmark
+    public String parseResponse() throws IOException {
+        return MessagesJson.readResponse(new StringReader(response), usageTracker, "benchmark");
+    }
+
+    @Benchmark
+    public String readEventStream(Blackhole blackhole) throws IOException {
+        Buffer source = new Buffer().write(eventStream);
+        return ClaudeAPIClient.readEventStream(source, blackhole::consume, usageTracker, "benchmark", () -> { });
+    }
+}
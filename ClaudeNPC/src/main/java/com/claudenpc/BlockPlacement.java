@@ -0,0 +1,54 @@
+package com.claudenpc;
+
+import org.bukkit.block.BlockState;
+import org.bukkit.block.data.BlockData;
+
+/**
+ * A single block to place, relative to a structure's origin
+ */
+public class BlockPlacement {
+
+    private final int x;
+    private final int y;
+    private final int z;
+    private final BlockData blockData;
+    private final BlockState tileState;
+
+    public BlockPlacement(int x, int y, int z, BlockData blockData) {
+        this(x, y, z, blockData, null);
+    }
+
+    /**
+     * @param tileState Snapshot of a tile entity to put back along with the block, or null
+     */
+    public BlockPlacement(int x, int y, int z, BlockData blockData, BlockState tileState) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.blockData = blockData;
+        this.tileState = tileState;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getZ() {
+        return z;
+    }
+
+    public BlockData getBlockData() {
+        return blockData;
+    }
+
+    /**
+     * Tile entity snapshot, such as a chest with its items, or null for a plain block
+     */
+    public BlockState getTileState() {
+        return tileState;
+    }
+}
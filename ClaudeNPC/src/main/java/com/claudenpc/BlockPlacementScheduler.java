@@ -0,0 +1,429 @@
+package com.claudenpc;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.data.AnaloguePowerable;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Lightable;
+import org.bukkit.block.data.Powerable;
+import org.bukkit.block.data.type.Piston;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Places structures over several ticks without stalling the server
+ *
+ * Each tick, queued jobs place blocks until python.placement.tick_budget_ms is used up.
+ * Blocks are sorted by chunk so a job works through one chunk at a time, and are placed
+ * with physics off - neighbour updates on a half-built structure would only cost time and
+ * could break half-built redstone. Once every block is down, the job makes a second pass
+ * under the same budget that applies physics to the blocks that depend on their
+ * neighbours: redstone components, so they pick up their power and wire shapes without
+ * waiting for a player to poke them, and blocks on the structure's outer faces, where it
+ * meets the world. Every other state is fully given by the structure and is left alone.
+ *
+ * Jobs may be submitted from any thread; all placement happens on the main thread.
+ * A job given a {@link BuildSnapshot} records each block's previous state just before
+ * overwriting it, so the build can be rolled back.
+ */
+public class BlockPlacementScheduler {
+
+    private final ClaudeNPC plugin;
+    private final long tickBudgetNanos;
+    private final Queue<PlacementJob> jobs = new ConcurrentLinkedQueue<>();
+    private final Metrics.Histogram blocksPerTick;
+    private final Metrics.Counter blocksPlaced;
+    private volatile boolean stopped;
+
+    public BlockPlacementScheduler(ClaudeNPC plugin) {
+        this.plugin = plugin;
+        double budgetMillis = plugin.getConfig().getDouble("python.placement.tick_budget_ms", 5.0);
+        this.tickBudgetNanos = (long) (budgetMillis * TimeUnit.MILLISECONDS.toNanos(1));
+        this.blocksPerTick = plugin.getMetrics().histogram("claudenpc_placement_blocks_per_tick",
+                "Blocks placed in each tick that had placement work", 1);
+        this.blocksPlaced = plugin.getMetrics().counter("claudenpc_placement_blocks_total",
+                "Blocks placed, including undo and rollback");
+
+        plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+    }
+
+    /**
+     * Queue a structure for placement
+     * @param origin Location the relative coordinates are added to
+     * @param blocks Blocks to place
+     * @return The job, whose future completes with the number of blocks placed
+     */
+    public PlacementJob submit(Location origin, List<BlockPlacement> blocks) {
+        return submit(origin, blocks, null);
+    }
+
+    /**
+     * Queue a structure for placement, recording what it overwrites
+     * @param snapshot Snapshot to record into, or null; closed when the job finishes
+     */
+    public PlacementJob submit(Location origin, List<BlockPlacement> blocks, BuildSnapshot snapshot) {
+        PlacementJob job = new PlacementJob(origin.getWorld(), origin.getBlockX(), origin.getBlockY(), origin.getBlockZ(),
+                blocks, true, snapshot);
+        enqueue(job);
+        return job;
+    }
+
+    /**
+     * Put back the blocks a snapshot recorded, in the order given
+     * @param restored Placements with absolute coordinates, from {@link BuildSnapshot#readReversed()}
+     */
+    public PlacementJob restore(BuildSnapshot snapshot, List<BlockPlacement> restored) {
+        // Order matters here: a block changed twice must end on its first recorded state
+        PlacementJob job = new PlacementJob(snapshot.getWorld(), 0, 0, 0, restored, false, null);
+        enqueue(job);
+        return job;
+    }
+
+    /**
+     * Put back the blocks a snapshot recorded right away, ignoring the tick budget
+     *
+     * For plugin disable, when there are no more ticks to spread the work over.
+     * Must be called on the main thread.
+     * @return Number of blocks restored
+     */
+    public int restoreNow(BuildSnapshot snapshot, List<BlockPlacement> restored) {
+        PlacementJob job = new PlacementJob(snapshot.getWorld(), 0, 0, 0, restored, false, null);
+        job.placeUntil(Long.MAX_VALUE);
+        job.finish();
+        return job.getPlaced();
+    }
+
+    /**
+     * Open a job that blocks can be added to while it is being placed
+     *
+     * Placement starts with whatever has arrived by the next tick; the job only finishes
+     * once {@link PlacementJob#seal()} has been called and every block is placed.
+     * @param origin Location the relative coordinates are added to
+     */
+    public PlacementJob open(Location origin) {
+        return open(origin, null);
+    }
+
+    /**
+     * Open a job that records what it overwrites
+     * @param snapshot Snapshot to record into, or null; closed when the job finishes
+     */
+    public PlacementJob open(Location origin, BuildSnapshot snapshot) {
+        PlacementJob job = new PlacementJob(origin, snapshot);
+        enqueue(job);
+        return job;
+    }
+
+    /**
+     * Queue a job, or cancel it straight away once the scheduler is shut down
+     */
+    private void enqueue(PlacementJob job) {
+        jobs.add(job);
+        // Whichever of this and shutdown() removes the job finishes it
+        if (stopped && jobs.remove(job)) {
+            job.cancel();
+            job.finish();
+        }
+    }
+
+    /**
+     * Number of structures waiting for or in placement
+     */
+    public int getQueuedJobs() {
+        return jobs.size();
+    }
+
+    private void tick() {
+        if (jobs.isEmpty()) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + tickBudgetNanos;
+        int placed = 0;
+        // A job still waiting on its script doesn't hold up the ones behind it
+        for (Iterator<PlacementJob> it = jobs.iterator(); it.hasNext(); ) {
+            PlacementJob job = it.next();
+            int before = job.getPlaced();
+            boolean done = job.isCancelled() || job.placeUntil(deadline);
+            placed += job.getPlaced() - before;
+            if (done) {
+                it.remove();
+                job.finish();
+            }
+            if (System.nanoTime() >= deadline) {
+                // Out of time this tick
+                break;
+            }
+        }
+
+        if (placed > 0) {
+            blocksPerTick.record(placed);
+            blocksPlaced.add(placed);
+        }
+    }
+
+    /**
+     * Cancel everything still queued, and any job submitted from now on
+     */
+    public void shutdown() {
+        stopped = true;
+        PlacementJob job;
+        while ((job = jobs.poll()) != null) {
+            job.cancel();
+            job.finish();
+        }
+    }
+
+    /**
+     * A structure being placed, with its progress
+     */
+    public static class PlacementJob {
+        // Check the clock every few blocks - placing one is cheaper than reading nanoTime
+        private static final int CLOCK_CHECK_INTERVAL = 16;
+
+        private final World world;
+        private final int originX;
+        private final int originY;
+        private final int originZ;
+        private final BuildSnapshot snapshot;
+        private final CompletableFuture<Integer> completion = new CompletableFuture<>();
+
+        // Owned by the main thread; streamed blocks wait in incoming until a tick picks them up
+        private BlockPlacement[] blocks;
+        private int size;
+        private final Queue<BlockPlacement> incoming = new ConcurrentLinkedQueue<>();
+        private volatile boolean sealed;
+        private final AtomicInteger received = new AtomicInteger();
+
+        private volatile int cursor;
+        // Blocks the physics pass has gone through, once placement is done
+        private int updateCursor;
+        // Bounding box the physics pass uses to find the outer faces: min x, y, z, then max
+        private int[] bounds;
+        private volatile boolean cancelled;
+
+        PlacementJob(World world, int originX, int originY, int originZ, List<BlockPlacement> placements,
+                     boolean sort, BuildSnapshot snapshot) {
+            this.world = world;
+            this.originX = originX;
+            this.originY = originY;
+            this.originZ = originZ;
+            this.snapshot = snapshot;
+
+            this.blocks = placements.toArray(new BlockPlacement[0]);
+            this.size = blocks.length;
+            this.received.set(size);
+            this.sealed = true;
+            if (sort) {
+                sortFrom(0);
+            }
+        }
+
+        PlacementJob(Location origin, BuildSnapshot snapshot) {
+            this.world = origin.getWorld();
+            this.originX = origin.getBlockX();
+            this.originY = origin.getBlockY();
+            this.originZ = origin.getBlockZ();
+            this.snapshot = snapshot;
+            this.blocks = new BlockPlacement[64];
+        }
+
+        /**
+         * Add a block to an open job; safe from any thread
+         */
+        public void add(BlockPlacement block) {
+            if (sealed) {
+                throw new IllegalStateException("Placement job is sealed");
+            }
+            incoming.add(block);
+            received.incrementAndGet();
+        }
+
+        /**
+         * Mark an open job as complete; it finishes once the blocks already added are placed
+         */
+        public void seal() {
+            sealed = true;
+        }
+
+        /**
+         * Move newly streamed blocks into the array and sort the part not yet placed
+         */
+        private void drainIncoming() {
+            if (incoming.isEmpty()) {
+                return;
+            }
+            BlockPlacement block;
+            while ((block = incoming.poll()) != null) {
+                if (size == blocks.length) {
+                    blocks = Arrays.copyOf(blocks, size * 2);
+                }
+                blocks[size++] = block;
+            }
+            sortFrom(cursor);
+        }
+
+        private void sortFrom(int from) {
+            // One chunk at a time, bottom-up within each chunk
+            Arrays.sort(blocks, from, size, Comparator
+                    .comparingInt((BlockPlacement b) -> (originX + b.getX()) >> 4)
+                    .thenComparingInt(b -> (originZ + b.getZ()) >> 4)
+                    .thenComparingInt(BlockPlacement::getY));
+        }
+
+        /**
+         * Place blocks, then update their physics, until the deadline passes or the job is done
+         * @return True once the job is sealed and every block is placed and updated
+         */
+        boolean placeUntil(long deadline) {
+            // Read before draining: once sealed, nothing more can arrive after the drain
+            boolean complete = sealed;
+            drainIncoming();
+
+            int i = cursor;
+            while (i < size) {
+                BlockPlacement block = blocks[i];
+                BlockData data = block.getBlockData();
+                Block target = world.getBlockAt(originX + block.getX(), originY + block.getY(), originZ + block.getZ());
+                if (snapshot != null) {
+                    snapshot.record(target);
+                }
+                BlockState tileState = block.getTileState();
+                if (tileState != null) {
+                    // Restoring a tile entity: its contents go back too, such as a chest's items
+                    tileState.update(true, false);
+                } else {
+                    target.setBlockData(data, false);
+                }
+                i++;
+
+                if (i % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() >= deadline) {
+                    break;
+                }
+            }
+            cursor = i;
+            if (!complete || i < size) {
+                return false;
+            }
+            return updateUntil(deadline);
+        }
+
+        /**
+         * Re-apply with physics the states of placed blocks that depend on their neighbours,
+         * now that all of those exist
+         * @return True once every block has been gone through
+         */
+        private boolean updateUntil(long deadline) {
+            if (bounds == null) {
+                bounds = bounds();
+            }
+            int i = updateCursor;
+            while (i < size) {
+                BlockPlacement block = blocks[i];
+                if (needsUpdate(block)) {
+                    world.getBlockAt(originX + block.getX(), originY + block.getY(), originZ + block.getZ())
+                            .getState().update(true, true);
+                }
+                i++;
+
+                if (i % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() >= deadline) {
+                    break;
+                }
+            }
+            updateCursor = i;
+            return i >= size;
+        }
+
+        private boolean needsUpdate(BlockPlacement block) {
+            BlockData data = block.getBlockData();
+            if (data instanceof Powerable || data instanceof AnaloguePowerable
+                    || data instanceof Lightable || data instanceof Piston) {
+                return true;
+            }
+            return block.getX() == bounds[0] || block.getY() == bounds[1] || block.getZ() == bounds[2]
+                    || block.getX() == bounds[3] || block.getY() == bounds[4] || block.getZ() == bounds[5];
+        }
+
+        private int[] bounds() {
+            int[] box = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE,
+                    Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+            for (int i = 0; i < size; i++) {
+                BlockPlacement block = blocks[i];
+                box[0] = Math.min(box[0], block.getX());
+                box[1] = Math.min(box[1], block.getY());
+                box[2] = Math.min(box[2], block.getZ());
+                box[3] = Math.max(box[3], block.getX());
+                box[4] = Math.max(box[4], block.getY());
+                box[5] = Math.max(box[5], block.getZ());
+            }
+            return box;
+        }
+
+        void finish() {
+            if (snapshot != null) {
+                snapshot.close();
+            }
+            if (cancelled) {
+                completion.completeExceptionally(new CancellationException("Placement cancelled after " + cursor + " blocks"));
+            } else {
+                completion.complete(cursor);
+            }
+        }
+
+        /**
+         * Stop placing; the job completes exceptionally on the next tick.
+         * Blocks already placed stay unless the job's snapshot is rolled back.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * The snapshot this job records into, or null
+         */
+        public BuildSnapshot getSnapshot() {
+            return snapshot;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Future that completes with the number of blocks placed
+         */
+        public CompletableFuture<Integer> getCompletion() {
+            return completion;
+        }
+
+        public int getPlaced() {
+            return cursor;
+        }
+
+        /**
+         * Blocks in the job so far; grows while an open job is still streaming
+         */
+        public int getTotal() {
+            return received.get();
+        }
+
+        /**
+         * Fraction of the blocks received so far that have been placed, 0.0 - 1.0
+         */
+        public double getProgress() {
+            int total = received.get();
+            return total == 0 ? (sealed ? 1.0 : 0.0) : (double) cursor / total;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.claudenpc;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Directional;
+import org.bukkit.block.data.Lightable;
+import org.bukkit.block.data.Powerable;
+import org.bukkit.block.data.Waterlogged;
+import org.bukkit.block.data.type.Comparator;
+import org.bukkit.block.data.type.Repeater;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Turns block descriptions into BlockData, once per distinct state
+ *
+ * Generated structures repeat a handful of states (redstone wire, a few repeater
+ * orientations) hundreds of times. Each distinct (material, properties) pair or state
+ * string is resolved - material lookup, createBlockData, property mutation - the first
+ * time it is seen and the result is reused across blocks and builds. Cached BlockData is
+ * shared, so callers must not mutate it; placement only reads it.
+ */
+public class BlockStateResolver {
+
+    // Distinct states are few in practice; clearing past this guards against scripts
+    // inventing endless property combinations
+    private static final int MAX_STATES = 4096;
+
+    private final Logger logger;
+    private final Function<Material, BlockData> materialFactory;
+    private final Function<String, BlockData> stateFactory;
+    private final Map<Object, Optional<BlockData>> states = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public BlockStateResolver(Logger logger) {
+        this(logger, Material::createBlockData, Bukkit::createBlockData);
+    }
+
+    /**
+     * Resolver creating BlockData through the given factories instead of the server,
+     * for running outside a server (benchmarks)
+     */
+    BlockStateResolver(Logger logger, Function<Material, BlockData> materialFactory,
+                       Function<String, BlockData> stateFactory) {
+        this.logger = logger;
+        this.materialFactory = materialFactory;
+        this.stateFactory = stateFactory;
+    }
+
+    /**
+     * Resolve a material name and JSON properties, as printed by build scripts
+     * @param material Material name, with or without the minecraft: prefix, any case
+     * @param properties facing, powered, delay, mode, lit, waterlogged; may be null
+     * @return The block data, or null if the material is unknown
+     */
+    public BlockData resolve(String material, Map<?, ?> properties) {
+        return lookup(new StateKey(material, properties), () -> {
+            String materialName = material.toUpperCase().replace("MINECRAFT:", "");
+            try {
+                BlockData blockData = materialFactory.apply(Material.valueOf(materialName));
+
+                // Handle block properties (facing, powered, waterlogged, etc.)
+                if (properties != null) {
+                    applyProperties(blockData, properties);
+                }
+                return blockData;
+            } catch (IllegalArgumentException e) {
+                logger.warning("Unknown material: " + materialName);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Resolve a full state string such as minecraft:lever[face=floor,facing=east]
+     * @return The block data, or null if the server doesn't recognise the state
+     */
+    public BlockData resolve(String state) {
+        return lookup(state, () -> {
+            try {
+                return stateFactory.apply(state);
+            } catch (IllegalArgumentException e) {
+                logger.warning("Unknown block state: " + state);
+                return null;
+            }
+        });
+    }
+
+    private BlockData lookup(Object key, Supplier<BlockData> create) {
+        Optional<BlockData> cached = states.get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached.orElse(null);
+        }
+
+        misses.increment();
+        if (states.size() >= MAX_STATES) {
+            states.clear();
+        }
+        // Unknown states are cached too, so they are only warned about once
+        return states.computeIfAbsent(key, k -> Optional.ofNullable(create.get())).orElse(null);
+    }
+
+    /**
+     * Number of distinct states currently cached
+     */
+    public int getCachedStates() {
+        return states.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Apply JSON block properties to block data
+     */
+    private void applyProperties(BlockData blockData, Map<?, ?> properties) {
+        // Handle directional blocks (facing)
+        if (blockData instanceof Directional) {
+            String facingStr = (String) properties.get("facing");
+            if (facingStr != null) {
+                try {
+                    BlockFace facing = BlockFace.valueOf(facingStr.toUpperCase());
+                    ((Directional) blockData).setFacing(facing);
+                } catch (IllegalArgumentException e) {
+                    logger.warning("Invalid facing direction: " + facingStr);
+                }
+            }
+        }
+
+        // Handle powered blocks (redstone components)
+        if (blockData instanceof Powerable) {
+            Object poweredObj = properties.get("powered");
+            if (poweredObj != null) {
+                boolean powered = poweredObj instanceof Boolean ? (Boolean) poweredObj :
+                                Boolean.parseBoolean(poweredObj.toString());
+                ((Powerable) blockData).setPowered(powered);
+            }
+        }
+
+        // Handle delay for repeaters
+        if (blockData instanceof Repeater) {
+            Object delayObj = properties.get("delay");
+            if (delayObj != null) {
+                int delay = delayObj instanceof Long ? ((Long) delayObj).intValue() :
+                           Integer.parseInt(delayObj.toString());
+                ((Repeater) blockData).setDelay(delay);
+            }
+        }
+
+        // Handle comparator mode
+        if (blockData instanceof Comparator) {
+            String modeStr = (String) properties.get("mode");
+            if (modeStr != null) {
+                try {
+                    Comparator.Mode mode =
+                        Comparator.Mode.valueOf(modeStr.toUpperCase());
+                    ((Comparator) blockData).setMode(mode);
+                } catch (IllegalArgumentException e) {
+                    logger.warning("Invalid comparator mode: " + modeStr);
+                }
+            }
+        }
+
+        // Handle lit state (torches, lamps)
+        if (blockData instanceof Lightable) {
+            Object litObj = properties.get("lit");
+            if (litObj != null) {
+                boolean lit = litObj instanceof Boolean ? (Boolean) litObj :
+                             Boolean.parseBoolean(litObj.toString());
+                ((Lightable) blockData).setLit(lit);
+            }
+        }
+
+        // Handle waterlogged state
+        if (blockData instanceof Waterlogged) {
+            Object waterloggedObj = properties.get("waterlogged");
+            if (waterloggedObj != null) {
+                boolean waterlogged = waterloggedObj instanceof Boolean ? (Boolean) waterloggedObj :
+                                     Boolean.parseBoolean(waterloggedObj.toString());
+                ((Waterlogged) blockData).setWaterlogged(waterlogged);
+            }
+        }
+    }
+
+    /**
+     * Cache key for a material plus its JSON properties
+     */
+    private static class StateKey {
+        private final String material;
+        private final Map<?, ?> properties;
+        private final int hash;
+
+        StateKey(String material, Map<?, ?> properties) {
+            this.material = material;
+            this.properties = properties;
+            this.hash = 31 * material.hashCode() + Objects.hashCode(properties);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof StateKey)) {
+                return false;
+            }
+            StateKey other = (StateKey) o;
+            return material.equals(other.material) && Objects.equals(properties, other.properties);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
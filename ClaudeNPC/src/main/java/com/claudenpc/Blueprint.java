@@ -0,0 +1,126 @@
+package com.claudenpc;
+
+import org.bukkit.block.data.BlockData;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A prebuilt structure held in compact form
+ *
+ * Blocks are stored as parallel int arrays (x, y, z, palette index) rather than one
+ * object per block, and each distinct block state string ("minecraft:lever[face=floor]")
+ * appears once in the palette. Immutable once built.
+ */
+public class Blueprint {
+
+    private final String name;
+    private final String description;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final String[] palette;
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] zs;
+    private final int[] states;
+
+    // Resolved lazily, once; BlockData is never mutated after creation so it can be shared
+    private volatile BlockData[] resolved;
+
+    Blueprint(String name, String description, int sizeX, int sizeY, int sizeZ,
+              String[] palette, int[] xs, int[] ys, int[] zs, int[] states) {
+        this.name = name;
+        this.description = description;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.palette = palette;
+        this.xs = xs;
+        this.ys = ys;
+        this.zs = zs;
+        this.states = states;
+    }
+
+    /**
+     * Expand into placements, resolving each palette state to BlockData once
+     * @param resolver Shared state cache; blocks whose state the server doesn't know are skipped
+     */
+    public List<BlockPlacement> toPlacements(BlockStateResolver resolver) {
+        BlockData[] data = resolve(resolver);
+        List<BlockPlacement> placements = new ArrayList<>(states.length);
+        for (int i = 0; i < states.length; i++) {
+            BlockData blockData = data[states[i]];
+            if (blockData != null) {
+                placements.add(new BlockPlacement(xs[i], ys[i], zs[i], blockData));
+            }
+        }
+        return placements;
+    }
+
+    private BlockData[] resolve(BlockStateResolver resolver) {
+        BlockData[] data = resolved;
+        if (data == null) {
+            data = new BlockData[palette.length];
+            for (int i = 0; i < palette.length; i++) {
+                data[i] = resolver.resolve(palette[i]);
+            }
+            resolved = data;
+        }
+        return data;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    public int getSizeZ() {
+        return sizeZ;
+    }
+
+    public int getBlockCount() {
+        return states.length;
+    }
+
+    /**
+     * Number of distinct block states
+     */
+    public int getPaletteSize() {
+        return palette.length;
+    }
+
+    int getX(int block) {
+        return xs[block];
+    }
+
+    int getY(int block) {
+        return ys[block];
+    }
+
+    int getZ(int block) {
+        return zs[block];
+    }
+
+    /**
+     * Palette index of a block
+     */
+    int getState(int block) {
+        return states[block];
+    }
+
+    String getPaletteState(int index) {
+        return palette[index];
+    }
+}
@@ -0,0 +1,399 @@
+package com.claudenpc;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Binary blueprint format (.cnpb) and converters to and from the text formats
+ *
+ * Layout, big-endian:
+ *   magic "CNPB", u16 version, string name, string description,
+ *   i32 sizeX/sizeY/sizeZ, i32 minX/minY/minZ,
+ *   u16 palette count, palette strings ("minecraft:lever[face=floor]"),
+ *   i32 block count, then per block u16 x, u16 y, u16 z (offsets from min) and a
+ *   palette index (u8 when the palette has at most 256 states, else u16).
+ * Strings are a u16 byte length followed by UTF-8.
+ *
+ * Files are read through a memory map straight into the blueprint's arrays, with no
+ * per-block objects along the way.
+ */
+public final class BlueprintFile {
+
+    public static final String EXTENSION = ".cnpb";
+
+    private static final int MAGIC = 0x434E5042; // "CNPB"
+    private static final int VERSION = 1;
+    private static final int MAX_EXTENT = 0xFFFF;
+
+    private static final Pattern SETBLOCK = Pattern.compile(
+            "^setblock\\s+~(-?\\d*)\\s+~(-?\\d*)\\s+~(-?\\d*)\\s+(\\S+)");
+    private static final Pattern DIMENSIONS = Pattern.compile(
+            "^#\\s*Dimensions:\\s*\\((\\d+),\\s*(\\d+),\\s*(\\d+)\\)");
+
+    private BlueprintFile() {
+    }
+
+    /**
+     * Read a binary blueprint through a memory map
+     */
+    public static Blueprint read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer.order(ByteOrder.BIG_ENDIAN));
+        } catch (RuntimeException e) {
+            // Truncated or corrupt files surface as buffer underflows
+            throw new IOException("Invalid blueprint file " + file + ": " + e, e);
+        }
+    }
+
+    static Blueprint read(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a blueprint file");
+        }
+        int version = Short.toUnsignedInt(buffer.getShort());
+        if (version != VERSION) {
+            throw new IOException("Unsupported blueprint version " + version);
+        }
+
+        String name = readString(buffer);
+        String description = readString(buffer);
+        int sizeX = buffer.getInt();
+        int sizeY = buffer.getInt();
+        int sizeZ = buffer.getInt();
+        int minX = buffer.getInt();
+        int minY = buffer.getInt();
+        int minZ = buffer.getInt();
+
+        String[] palette = new String[Short.toUnsignedInt(buffer.getShort())];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = readString(buffer);
+        }
+
+        int count = buffer.getInt();
+        boolean wideIndex = palette.length > 256;
+        int[] xs = new int[count];
+        int[] ys = new int[count];
+        int[] zs = new int[count];
+        int[] states = new int[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = minX + Short.toUnsignedInt(buffer.getShort());
+            ys[i] = minY + Short.toUnsignedInt(buffer.getShort());
+            zs[i] = minZ + Short.toUnsignedInt(buffer.getShort());
+            states[i] = wideIndex ? Short.toUnsignedInt(buffer.getShort()) : Byte.toUnsignedInt(buffer.get());
+            if (states[i] >= palette.length) {
+                throw new IOException("Palette index out of range at block " + i);
+            }
+        }
+
+        return new Blueprint(name, description, sizeX, sizeY, sizeZ, palette, xs, ys, zs, states);
+    }
+
+    /**
+     * Write a blueprint in binary form
+     * @throws IOException if the structure spans more than 65535 blocks on an axis
+     *                     or has more than 65535 distinct states
+     */
+    public static void write(Blueprint blueprint, Path file) throws IOException {
+        int count = blueprint.getBlockCount();
+        int minX = 0, minY = 0, minZ = 0, maxX = 0, maxY = 0, maxZ = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || blueprint.getX(i) < minX) minX = blueprint.getX(i);
+            if (i == 0 || blueprint.getY(i) < minY) minY = blueprint.getY(i);
+            if (i == 0 || blueprint.getZ(i) < minZ) minZ = blueprint.getZ(i);
+            if (i == 0 || blueprint.getX(i) > maxX) maxX = blueprint.getX(i);
+            if (i == 0 || blueprint.getY(i) > maxY) maxY = blueprint.getY(i);
+            if (i == 0 || blueprint.getZ(i) > maxZ) maxZ = blueprint.getZ(i);
+        }
+        if (maxX - minX > MAX_EXTENT || maxY - minY > MAX_EXTENT || maxZ - minZ > MAX_EXTENT) {
+            throw new IOException("Blueprint " + blueprint.getName() + " is too large for the binary format");
+        }
+        if (blueprint.getPaletteSize() > 0xFFFF) {
+            throw new IOException("Blueprint " + blueprint.getName() + " has too many block states");
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            writeString(out, blueprint.getName());
+            writeString(out, blueprint.getDescription());
+            out.writeInt(blueprint.getSizeX());
+            out.writeInt(blueprint.getSizeY());
+            out.writeInt(blueprint.getSizeZ());
+            out.writeInt(minX);
+            out.writeInt(minY);
+            out.writeInt(minZ);
+
+            out.writeShort(blueprint.getPaletteSize());
+            for (int i = 0; i < blueprint.getPaletteSize(); i++) {
+                writeString(out, blueprint.getPaletteState(i));
+            }
+
+            boolean wideIndex = blueprint.getPaletteSize() > 256;
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeShort(blueprint.getX(i) - minX);
+                out.writeShort(blueprint.getY(i) - minY);
+                out.writeShort(blueprint.getZ(i) - minZ);
+                if (wideIndex) {
+                    out.writeShort(blueprint.getState(i));
+                } else {
+                    out.writeByte(blueprint.getState(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Convert PythonBridge block output - a JSON array or one object per line of
+     * {"x", "y", "z", "material", "properties"}
+     */
+    public static Blueprint fromBlockJson(String name, Reader reader) throws IOException {
+        Builder builder = new Builder(name, "");
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        StringBuilder array = null;
+        while ((line = lines.readLine()) != null) {
+            String trimmed = line.trim();
+            if (array != null || trimmed.startsWith("[")) {
+                // Arrays may be pretty-printed over several lines
+                array = array == null ? new StringBuilder() : array;
+                array.append(line).append('\n');
+            } else if (trimmed.startsWith("{")) {
+                addBlockJson(builder, JsonParser.parseString(trimmed).getAsJsonObject());
+            }
+        }
+        if (array != null) {
+            for (JsonElement element : JsonParser.parseString(array.toString()).getAsJsonArray()) {
+                addBlockJson(builder, element.getAsJsonObject());
+            }
+        }
+        return builder.build();
+    }
+
+    private static void addBlockJson(Builder builder, JsonObject block) {
+        String material = block.get("material").getAsString().toLowerCase();
+        if (!material.contains(":")) {
+            material = "minecraft:" + material;
+        }
+        builder.add(block.get("x").getAsInt(), block.get("y").getAsInt(), block.get("z").getAsInt(),
+                BlueprintRegistry.stateString(material, block.getAsJsonObject("properties")));
+    }
+
+    /**
+     * Write a blueprint as PythonBridge block output, one JSON object per line
+     */
+    public static void toBlockJson(Blueprint blueprint, Writer writer) throws IOException {
+        for (int i = 0; i < blueprint.getBlockCount(); i++) {
+            String state = blueprint.getPaletteState(blueprint.getState(i));
+            int bracket = state.indexOf('[');
+
+            JsonWriter json = new JsonWriter(writer);
+            json.beginObject();
+            json.name("x").value(blueprint.getX(i));
+            json.name("y").value(blueprint.getY(i));
+            json.name("z").value(blueprint.getZ(i));
+            json.name("material").value(bracket < 0 ? state : state.substring(0, bracket));
+            if (bracket >= 0) {
+                json.name("properties").beginObject();
+                for (String property : state.substring(bracket + 1, state.length() - 1).split(",")) {
+                    int equals = property.indexOf('=');
+                    json.name(property.substring(0, equals)).value(property.substring(equals + 1));
+                }
+                json.endObject();
+            }
+            json.endObject();
+            json.flush();
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    /**
+     * Convert a .mcfunction of relative setblock commands, as written by quantum_circuit_generator.py
+     */
+    public static Blueprint fromMcfunction(String name, Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        List<String> header = new ArrayList<>();
+        Builder builder = null;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            String trimmed = line.trim();
+            if (builder == null && trimmed.startsWith("#")) {
+                header.add(trimmed);
+                continue;
+            }
+            Matcher setblock = SETBLOCK.matcher(trimmed);
+            if (!setblock.find()) {
+                continue;
+            }
+            if (builder == null) {
+                builder = new Builder(name, header.size() > 1 ? header.get(1).substring(1).trim() : "");
+                for (String comment : header) {
+                    Matcher dimensions = DIMENSIONS.matcher(comment);
+                    if (dimensions.find()) {
+                        builder.size(Integer.parseInt(dimensions.group(1)), Integer.parseInt(dimensions.group(2)),
+                                Integer.parseInt(dimensions.group(3)));
+                    }
+                }
+            }
+            builder.add(relative(setblock.group(1)), relative(setblock.group(2)), relative(setblock.group(3)),
+                    // The generator writes Python booleans
+                    setblock.group(4).replace("=True", "=true").replace("=False", "=false"));
+        }
+        return builder != null ? builder.build() : new Builder(name, "").build();
+    }
+
+    /**
+     * Write a blueprint as a .mcfunction in the same layout as quantum_circuit_generator.py
+     */
+    public static void toMcfunction(Blueprint blueprint, Writer writer) throws IOException {
+        writer.write("# " + blueprint.getName() + "\n");
+        writer.write("# " + blueprint.getDescription() + "\n");
+        writer.write("# Dimensions: (" + blueprint.getSizeX() + ", " + blueprint.getSizeY() + ", " + blueprint.getSizeZ() + ")\n");
+        writer.write("# Block count: " + blueprint.getBlockCount() + "\n");
+        writer.write("\n");
+        for (int i = 0; i < blueprint.getBlockCount(); i++) {
+            if (i > 0) {
+                writer.write("\n");
+            }
+            writer.write("setblock ~" + blueprint.getX(i) + " ~" + blueprint.getY(i) + " ~" + blueprint.getZ(i) +
+                    " " + blueprint.getPaletteState(blueprint.getState(i)));
+        }
+        writer.flush();
+    }
+
+    private static int relative(String offset) {
+        return offset.isEmpty() ? 0 : Integer.parseInt(offset);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("String too long for blueprint file");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Command-line converter between .json, .mcfunction and .cnpb, picked by file extension:
+     * java -cp ClaudeNPC.jar com.claudenpc.BlueprintFile in.mcfunction out.cnpb
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BlueprintFile <input.json|.mcfunction|.cnpb> <output.json|.mcfunction|.cnpb>");
+            System.exit(1);
+        }
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+
+        String name = input.getFileName().toString().replaceFirst("\\.[^.]+$", "").replaceFirst("^place_", "");
+        Blueprint blueprint;
+        if (args[0].endsWith(EXTENSION)) {
+            blueprint = read(input);
+        } else {
+            try (Reader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+                blueprint = args[0].endsWith(".mcfunction") ? fromMcfunction(name, reader) : fromBlockJson(name, reader);
+            }
+        }
+
+        if (args[1].endsWith(EXTENSION)) {
+            write(blueprint, output);
+        } else {
+            try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+                if (args[1].endsWith(".mcfunction")) {
+                    toMcfunction(blueprint, writer);
+                } else {
+                    toBlockJson(blueprint, writer);
+                }
+            }
+        }
+        System.out.println("Converted " + blueprint.getBlockCount() + " blocks (" +
+                blueprint.getPaletteSize() + " states) to " + output);
+    }
+
+    /**
+     * Collects blocks, interning each state into the palette
+     */
+    static class Builder {
+        private final String name;
+        private final String description;
+        private final Map<String, Integer> palette = new LinkedHashMap<>();
+        private int[] xs = new int[64];
+        private int[] ys = new int[64];
+        private int[] zs = new int[64];
+        private int[] states = new int[64];
+        private int count;
+        private int sizeX = -1;
+        private int sizeY;
+        private int sizeZ;
+
+        Builder(String name, String description) {
+            this.name = name;
+            this.description = description;
+        }
+
+        void size(int x, int y, int z) {
+            this.sizeX = x;
+            this.sizeY = y;
+            this.sizeZ = z;
+        }
+
+        void add(int x, int y, int z, String state) {
+            if (count == xs.length) {
+                xs = Arrays.copyOf(xs, count * 2);
+                ys = Arrays.copyOf(ys, count * 2);
+                zs = Arrays.copyOf(zs, count * 2);
+                states = Arrays.copyOf(states, count * 2);
+            }
+            xs[count] = x;
+            ys[count] = y;
+            zs[count] = z;
+            states[count] = palette.computeIfAbsent(state, k -> palette.size());
+            count++;
+        }
+
+        Blueprint build() {
+            if (sizeX < 0) {
+                // No declared dimensions - use the bounding box
+                int maxX = 0, maxY = 0, maxZ = 0;
+                for (int i = 0; i < count; i++) {
+                    maxX = Math.max(maxX, xs[i] + 1);
+                    maxY = Math.max(maxY, ys[i] + 1);
+                    maxZ = Math.max(maxZ, zs[i] + 1);
+                }
+                size(maxX, maxY, maxZ);
+            }
+            return new Blueprint(name, description, sizeX, sizeY, sizeZ,
+                    palette.keySet().toArray(new String[0]),
+                    Arrays.copyOf(xs, count), Arrays.copyOf(ys, count),
+                    Arrays.copyOf(zs, count), Arrays.copyOf(states, count));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.claudenpc;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Custom structures dropped into the scripts' blueprints/ folder
+ *
+ * Each is a binary .cnpb file (see {@link BlueprintFile}), looked up by name, parsed once
+ * into compact form and reloaded when its size or modification time changes. The
+ * built-in quantum circuits don't come from here; {@link QuantumCircuitGenerator}
+ * generates them in-process.
+ */
+public class BlueprintRegistry {
+
+    private final Logger logger;
+    private final Path blueprintDirectory;
+
+    private final Map<String, Loaded<Blueprint>> binaryBlueprints = new ConcurrentHashMap<>();
+
+    public BlueprintRegistry(Logger logger, Path scriptsDirectory) {
+        this.logger = logger;
+        this.blueprintDirectory = scriptsDirectory.resolve("blueprints");
+    }
+
+    /**
+     * Get a blueprint by name
+     * @return The blueprint, or null if blueprints/ has no readable file by that name
+     */
+    public Blueprint get(String name) {
+        // Names come from players; keep them inside the blueprints folder
+        if (!name.matches("[A-Za-z0-9_\\-]+")) {
+            return null;
+        }
+        Path file = blueprintDirectory.resolve(name + BlueprintFile.EXTENSION);
+        FileStamp stamp = FileStamp.of(file);
+        if (!stamp.exists()) {
+            binaryBlueprints.remove(name);
+            return null;
+        }
+
+        Loaded<Blueprint> loaded = binaryBlueprints.compute(name, (k, current) -> {
+            if (current != null && current.stamp.equals(stamp)) {
+                return current;
+            }
+            try {
+                return new Loaded<>(stamp, BlueprintFile.read(file));
+            } catch (IOException e) {
+                logger.warning("Failed to load blueprint " + file + ": " + e.getMessage());
+                return new Loaded<>(stamp, null);
+            }
+        });
+        return loaded.value;
+    }
+
+    /**
+     * Block state in the form Bukkit.createBlockData accepts: minecraft:lever[face=floor,facing=east]
+     */
+    static String stateString(String blockId, JsonObject properties) {
+        if (properties == null || properties.size() == 0) {
+            return blockId;
+        }
+        StringBuilder state = new StringBuilder(blockId).append('[');
+        for (Map.Entry<String, JsonElement> property : properties.entrySet()) {
+            if (state.charAt(state.length() - 1) != '[') {
+                state.append(',');
+            }
+            state.append(property.getKey()).append('=').append(property.getValue().getAsString());
+        }
+        return state.append(']').toString();
+    }
+
+    /**
+     * Size and modification time of a file, used to notice when it is replaced
+     */
+    private static class FileStamp {
+        private static final FileStamp MISSING = new FileStamp(-1, -1);
+
+        private final long size;
+        private final long modified;
+
+        FileStamp(long size, long modified) {
+            this.size = size;
+            this.modified = modified;
+        }
+
+        static FileStamp of(Path file) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                return new FileStamp(attributes.size(), attributes.lastModifiedTime().toMillis());
+            } catch (IOException e) {
+                return MISSING;
+            }
+        }
+
+        boolean exists() {
+            return size >= 0;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof FileStamp && ((FileStamp) o).size == size && ((FileStamp) o).modified == modified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size) * 31 + Long.hashCode(modified);
+        }
+    }
+
+    private static class Loaded<T> {
+        private final FileStamp stamp;
+        private final T value;
+
+        Loaded(FileStamp stamp, T value) {
+            this.stamp = stamp;
+            this.value = value;
+        }
+    }
+}
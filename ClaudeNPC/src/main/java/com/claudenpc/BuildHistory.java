@@ -0,0 +1,195 @@
+package com.claudenpc;
+
+import org.bukkit.World;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Makes structure builds transactional and undoable
+ *
+ * Every build records a {@link BuildSnapshot} while it is placed. A build that fails
+ * or is cancelled part way is rolled back automatically; one that completes joins a
+ * bounded undo history (python.placement.undo_history). Snapshots live in
+ * plugins/ClaudeNPC/snapshots and are deleted when they leave the history, or once
+ * their rollback has run - a rollback the shutdown cuts short is finished in {@link #close()}.
+ */
+public class BuildHistory {
+
+    private static final String SNAPSHOT_EXTENSION = ".snap";
+
+    private final Logger logger;
+    private final BlockPlacementScheduler scheduler;
+    private final Path directory;
+    private final int maxHistory;
+    private final AtomicLong nextId = new AtomicLong();
+    private final Deque<BuildSnapshot> history = new ArrayDeque<>();
+    // Snapshots whose rollback hasn't finished; whoever removes one restores or deletes it
+    private final Set<BuildSnapshot> pendingRollbacks = ConcurrentHashMap.newKeySet();
+
+    public BuildHistory(ClaudeNPC plugin, BlockPlacementScheduler scheduler) {
+        this.logger = plugin.getLogger();
+        this.scheduler = scheduler;
+        this.directory = plugin.getDataFolder().toPath().resolve("snapshots");
+        this.maxHistory = Math.max(0, plugin.getConfig().getInt("python.placement.undo_history", 10));
+
+        try {
+            Files.createDirectories(directory);
+            // Snapshots from a previous run refer to a history that no longer exists
+            try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, "*" + SNAPSHOT_EXTENSION)) {
+                for (Path file : stale) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            logger.warning("Failed to prepare snapshot directory: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Start recording a build
+     * @param owner Player the build is for, or null for the console
+     * @return The snapshot to pass to the placement job, or null if it couldn't be created
+     *         (the build then goes ahead without undo)
+     */
+    public BuildSnapshot begin(UUID owner, String description, World world) {
+        Path file = directory.resolve("build_" + nextId.incrementAndGet() + SNAPSHOT_EXTENSION);
+        try {
+            return new BuildSnapshot(logger, owner, description, world, file);
+        } catch (IOException e) {
+            logger.warning("Failed to create build snapshot, this build can't be undone: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Commit the job's snapshot to the history when it completes, or roll it back if it fails
+     */
+    public void track(BlockPlacementScheduler.PlacementJob job) {
+        BuildSnapshot snapshot = job.getSnapshot();
+        if (snapshot == null) {
+            return;
+        }
+        job.getCompletion().whenComplete((placed, error) -> {
+            if (error == null) {
+                commit(snapshot);
+            } else {
+                logger.info("Rolling back " + snapshot.getDescription() + " (" + snapshot.getRecorded() + " blocks)");
+                rollback(snapshot);
+            }
+        });
+    }
+
+    private void commit(BuildSnapshot snapshot) {
+        List<BuildSnapshot> evicted = new ArrayList<>();
+        synchronized (history) {
+            history.addLast(snapshot);
+            while (history.size() > maxHistory) {
+                evicted.add(history.removeFirst());
+            }
+        }
+        evicted.forEach(BuildSnapshot::delete);
+    }
+
+    /**
+     * Undo the most recent build by a player
+     * @param owner Player whose build to undo, or null for the most recent build by anyone
+     * @return Future with the restore job, or null if there is nothing to undo
+     */
+    public CompletableFuture<BlockPlacementScheduler.PlacementJob> undo(UUID owner) {
+        BuildSnapshot snapshot = null;
+        synchronized (history) {
+            for (Iterator<BuildSnapshot> it = history.descendingIterator(); it.hasNext(); ) {
+                BuildSnapshot candidate = it.next();
+                if (owner == null || Objects.equals(owner, candidate.getOwner())) {
+                    it.remove();
+                    snapshot = candidate;
+                    break;
+                }
+            }
+        }
+        return snapshot != null ? rollback(snapshot) : null;
+    }
+
+    /**
+     * Restore everything a snapshot recorded, then delete it
+     */
+    private CompletableFuture<BlockPlacementScheduler.PlacementJob> rollback(BuildSnapshot snapshot) {
+        pendingRollbacks.add(snapshot);
+        // Reading the records is disk I/O; keep it off the main thread
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return scheduler.restore(snapshot, snapshot.readReversed());
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to read build snapshot: " + e.getMessage(), e);
+            }
+        }).whenComplete((job, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                logger.warning(cause.getMessage());
+                if (pendingRollbacks.remove(snapshot)) {
+                    snapshot.delete();
+                }
+            } else {
+                job.getCompletion().whenComplete((placed, restoreError) -> {
+                    // A restore cancelled by shutdown is left for close() to finish
+                    if (restoreError == null && pendingRollbacks.remove(snapshot)) {
+                        snapshot.delete();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Builds that can be undone, oldest first
+     */
+    public List<BuildSnapshot> getHistory() {
+        synchronized (history) {
+            return new ArrayList<>(history);
+        }
+    }
+
+    /**
+     * Finish interrupted rollbacks, then drop the history and its snapshot files
+     *
+     * Call on the main thread after the placement scheduler has shut down: builds it
+     * cancelled are restored here in one go, as there are no ticks left to spread them over.
+     */
+    public void close() {
+        for (BuildSnapshot snapshot : new ArrayList<>(pendingRollbacks)) {
+            if (!pendingRollbacks.remove(snapshot)) {
+                continue;
+            }
+            try {
+                int restored = scheduler.restoreNow(snapshot, snapshot.readReversed());
+                logger.info("Rolled back " + snapshot.getDescription() + " (" + restored + " blocks)");
+            } catch (IOException e) {
+                logger.warning("Failed to roll back " + snapshot.getDescription() + ": " + e.getMessage());
+            }
+            snapshot.delete();
+        }
+
+        List<BuildSnapshot> remaining;
+        synchronized (history) {
+            remaining = new ArrayList<>(history);
+            history.clear();
+        }
+        remaining.forEach(BuildSnapshot::delete);
+    }
+}
@@ -0,0 +1,349 @@
+package com.claudenpc;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Runs structure builds off the main thread
+ *
+ * Generating a structure (a Python script, a blueprint lookup) blocks for seconds, so
+ * builds are queued here and run on virtual threads, python.builds.concurrency at a
+ * time, highest priority first. The queue is bounded and each player may only have a
+ * few builds queued or placing at once. Generated blocks are handed to the placement
+ * scheduler, which places them on the main thread within its tick budget.
+ */
+public class BuildQueue {
+
+    public enum Priority {
+        HIGH, NORMAL, LOW
+    }
+
+    public enum State {
+        QUEUED, GENERATING, PLACING, DONE, FAILED, CANCELLED
+    }
+
+    /**
+     * Produces the placement job for a build; runs on a build thread and may block
+     */
+    @FunctionalInterface
+    public interface BuildTask {
+        BlockPlacementScheduler.PlacementJob run() throws Exception;
+    }
+
+    private final Logger logger;
+    private final int maxQueued;
+    private final int maxPerPlayer;
+    private final AtomicLong nextId = new AtomicLong();
+
+    private final PriorityBlockingQueue<BuildJob> queue = new PriorityBlockingQueue<>(16,
+            Comparator.comparing((BuildJob job) -> job.priority).thenComparingLong(job -> job.id));
+    // Every job that is queued, generating or placing, by id
+    private final Map<Long, BuildJob> active = new ConcurrentHashMap<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean shutdown;
+
+    // Counters for /claudenpc jobs
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public BuildQueue(ClaudeNPC plugin) {
+        this.logger = plugin.getLogger();
+        this.maxQueued = Math.max(1, plugin.getConfig().getInt("python.builds.queue_size", 16));
+        this.maxPerPlayer = plugin.getConfig().getInt("python.builds.per_player", 2);
+
+        int concurrency = Math.max(1, plugin.getConfig().getInt("python.builds.concurrency", 2));
+        for (int i = 0; i < concurrency; i++) {
+            threads.add(Thread.ofVirtual().name("ClaudeNPC-Build-" + (i + 1)).start(this::buildLoop));
+        }
+    }
+
+    /**
+     * Queue a build
+     * @param owner Player the build is for, or null for the console (no quota)
+     * @return The queued job; its completion yields the number of blocks placed
+     * @throws BuildRejectedException If the queue is full or the player is over their quota
+     */
+    public BuildJob submit(UUID owner, String description, Priority priority, BuildTask task) {
+        if (shutdown) {
+            throw new BuildRejectedException("Plugin is shutting down");
+        }
+        // Checked and inserted under one lock so concurrent submits can't both take the last slot
+        synchronized (active) {
+            if (owner != null && maxPerPlayer > 0 && countOwnedBy(owner) >= maxPerPlayer) {
+                rejected.incrementAndGet();
+                throw new BuildRejectedException("You already have " + maxPerPlayer + " builds in progress");
+            }
+            if (queue.size() >= maxQueued) {
+                rejected.incrementAndGet();
+                throw new BuildRejectedException("Build queue is full");
+            }
+            BuildJob job = new BuildJob(nextId.incrementAndGet(), owner, description, priority, task);
+            active.put(job.id, job);
+            queue.add(job);
+            return job;
+        }
+    }
+
+    private int countOwnedBy(UUID owner) {
+        int count = 0;
+        for (BuildJob job : active.values()) {
+            if (owner.equals(job.owner)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void buildLoop() {
+        while (!shutdown) {
+            BuildJob job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException e) {
+                // Shutdown, or a cancel that landed after its job had finished generating
+                continue;
+            }
+            if (job.start()) {
+                run(job);
+                Thread.interrupted();
+            }
+        }
+    }
+
+    private void run(BuildJob job) {
+        BlockPlacementScheduler.PlacementJob placement;
+        try {
+            placement = job.task.run();
+        } catch (Exception e) {
+            if (job.state == State.CANCELLED) {
+                finish(job, State.CANCELLED, new CancellationException("Build cancelled"));
+            } else {
+                logger.warning("Build #" + job.id + " (" + job.description + ") failed: " + e.getMessage());
+                finish(job, State.FAILED, e);
+            }
+            return;
+        }
+
+        if (!job.placing(placement)) {
+            // Cancelled while generating, after the script had already finished
+            placement.cancel();
+        }
+        placement.getCompletion().whenComplete((placed, error) -> {
+            if (error == null) {
+                finish(job, State.DONE, null);
+                job.completion.complete(placed);
+            } else {
+                finish(job, job.state == State.CANCELLED ? State.CANCELLED : State.FAILED, error);
+            }
+        });
+    }
+
+    private void finish(BuildJob job, State state, Throwable error) {
+        active.remove(job.id);
+        synchronized (job) {
+            if (job.state != State.CANCELLED) {
+                job.state = state;
+            }
+        }
+        if (state == State.DONE) {
+            completed.incrementAndGet();
+        } else if (state == State.FAILED) {
+            failed.incrementAndGet();
+        }
+        if (error != null) {
+            job.completion.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Cancel a build
+     *
+     * A queued build is dropped, a generating build has its thread interrupted and a
+     * placing build is stopped and rolled back.
+     * @param owner Only cancel the build if it belongs to this player; null for any owner
+     * @return False if there is no such build in progress
+     */
+    public boolean cancel(long id, UUID owner) {
+        BuildJob job = active.get(id);
+        if (job == null || (owner != null && !owner.equals(job.owner))) {
+            return false;
+        }
+        return job.cancel();
+    }
+
+    /**
+     * Builds that are queued, generating or placing, oldest first
+     */
+    public List<BuildJob> getJobs() {
+        List<BuildJob> jobs = new ArrayList<>(active.values());
+        jobs.sort(Comparator.comparingLong(BuildJob::getId));
+        return jobs;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Stop the build threads and cancel every build in progress
+     */
+    public void shutdown() {
+        shutdown = true;
+        threads.forEach(Thread::interrupt);
+        for (BuildJob job : new ArrayList<>(active.values())) {
+            job.cancel();
+        }
+    }
+
+    /**
+     * One queued build
+     */
+    public class BuildJob {
+        private final long id;
+        private final UUID owner;
+        private final String description;
+        private final Priority priority;
+        private final BuildTask task;
+        private final long submittedAt = System.currentTimeMillis();
+        private final CompletableFuture<Integer> completion = new CompletableFuture<>();
+
+        private volatile State state = State.QUEUED;
+        private Thread thread;
+        private BlockPlacementScheduler.PlacementJob placement;
+
+        BuildJob(long id, UUID owner, String description, Priority priority, BuildTask task) {
+            this.id = id;
+            this.owner = owner;
+            this.description = description;
+            this.priority = priority;
+            this.task = task;
+        }
+
+        private synchronized boolean start() {
+            if (state != State.QUEUED) {
+                return false;
+            }
+            state = State.GENERATING;
+            thread = Thread.currentThread();
+            return true;
+        }
+
+        private synchronized boolean placing(BlockPlacementScheduler.PlacementJob placement) {
+            this.placement = placement;
+            thread = null;
+            if (state == State.CANCELLED) {
+                return false;
+            }
+            state = State.PLACING;
+            return true;
+        }
+
+        private boolean cancel() {
+            State previous;
+            synchronized (this) {
+                previous = state;
+                if (previous == State.DONE || previous == State.FAILED || previous == State.CANCELLED) {
+                    return false;
+                }
+                state = State.CANCELLED;
+                if (thread != null) {
+                    thread.interrupt();
+                }
+            }
+
+            if (previous == State.QUEUED) {
+                queue.remove(this);
+                finish(this, State.CANCELLED, new CancellationException("Build cancelled"));
+            } else if (previous == State.PLACING) {
+                // Completes the placement exceptionally, which rolls it back and finishes this job
+                placement.cancel();
+            }
+            return true;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public UUID getOwner() {
+            return owner;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public Priority getPriority() {
+            return priority;
+        }
+
+        public synchronized State getState() {
+            return state;
+        }
+
+        public long getSubmittedAt() {
+            return submittedAt;
+        }
+
+        /**
+         * Fraction of blocks placed, or 0 before placement starts
+         */
+        public synchronized double getProgress() {
+            return placement != null ? placement.getProgress() : 0;
+        }
+
+        /**
+         * Position in the queue counting from 1, or 0 once the build has started
+         */
+        public int getQueuePosition() {
+            if (getState() != State.QUEUED) {
+                return 0;
+            }
+            int ahead = 0;
+            for (BuildJob other : queue) {
+                if (queue.comparator().compare(other, this) < 0) {
+                    ahead++;
+                }
+            }
+            return ahead + 1;
+        }
+
+        /**
+         * Completes with the number of blocks placed, or fails if the build fails or is cancelled
+         */
+        public CompletableFuture<Integer> getCompletion() {
+            return completion;
+        }
+    }
+
+    /**
+     * Thrown when a build can't be queued
+     */
+    public static class BuildRejectedException extends RuntimeException {
+        public BuildRejectedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.claudenpc;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.TileState;
+import org.bukkit.block.data.BlockData;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * What a build overwrote, so it can be put back
+ *
+ * Before each block is placed its previous state is recorded. The records - absolute
+ * x, y, z and a palette index - go to a file rather than the heap, so a large build
+ * costs 16 bytes of disk per block. Only the palette of distinct previous states is
+ * kept in memory, and for most builds that is a handful of entries (air, stone, grass).
+ *
+ * Tile entities - chests, signs, furnaces and the like - hold more than their block
+ * state, and Bukkit can't write that to a file. For those the snapshot also keeps a
+ * BlockState copy on the heap, so undo puts back a chest's items or a sign's text.
+ * Builds rarely overwrite many of them. Entities, such as item frames or armor stands,
+ * are not recorded.
+ *
+ * Recording happens on the main thread while the build is placed; once closed, the
+ * snapshot can be read back from any thread.
+ */
+public class BuildSnapshot {
+
+    private static final int RECORD_BYTES = 16;
+
+    private final Logger logger;
+    private final UUID owner;
+    private final String description;
+    private final World world;
+    private final Path file;
+    private final long createdAt = System.currentTimeMillis();
+
+    private final Map<BlockData, Integer> paletteIndex = new HashMap<>();
+    private final List<BlockData> palette = new ArrayList<>();
+    // Palette entries whose blocks are tile entities
+    private final BitSet tileEntries = new BitSet();
+    // Contents of overwritten tile entities, by record number
+    private final Map<Integer, BlockState> tileStates = new HashMap<>();
+    private DataOutputStream out;
+    private volatile int recorded;
+    private volatile boolean broken;
+
+    BuildSnapshot(Logger logger, UUID owner, String description, World world, Path file) throws IOException {
+        this.logger = logger;
+        this.owner = owner;
+        this.description = description;
+        this.world = world;
+        this.file = file;
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+    }
+
+    /**
+     * Record a block's current state before it is overwritten
+     */
+    void record(Block block) {
+        if (out == null) {
+            return;
+        }
+        BlockData previous = block.getBlockData();
+        Integer index = paletteIndex.get(previous);
+        if (index == null) {
+            index = palette.size();
+            paletteIndex.put(previous, index);
+            palette.add(previous);
+            // Checked once per distinct state; only tile entities pay for a full snapshot
+            if (block.getState(false) instanceof TileState) {
+                tileEntries.set(index);
+            }
+        }
+        if (tileEntries.get(index)) {
+            tileStates.put(recorded, block.getState());
+        }
+
+        try {
+            out.writeInt(block.getX());
+            out.writeInt(block.getY());
+            out.writeInt(block.getZ());
+            out.writeInt(index);
+            recorded++;
+        } catch (IOException e) {
+            logger.warning("Build snapshot failed, this build can't be undone: " + e.getMessage());
+            broken = true;
+            close();
+        }
+    }
+
+    /**
+     * Stop recording and flush the records to disk
+     */
+    void close() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            logger.warning("Failed to write build snapshot: " + e.getMessage());
+            broken = true;
+        }
+        out = null;
+        paletteIndex.clear();
+    }
+
+    /**
+     * Read the recorded states back, most recently overwritten first
+     *
+     * A block placed twice in one build is recorded twice; restoring in reverse order
+     * leaves it in its original state.
+     * @return Placements with absolute coordinates
+     */
+    List<BlockPlacement> readReversed() throws IOException {
+        if (broken) {
+            throw new IOException("Snapshot is incomplete");
+        }
+        int count = recorded;
+        BlockPlacement[] placements = new BlockPlacement[count];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            for (int i = count - 1; i >= 0; i--) {
+                int x = in.readInt();
+                int y = in.readInt();
+                int z = in.readInt();
+                BlockState tileState = tileStates.get(count - 1 - i);
+                placements[i] = new BlockPlacement(x, y, z, palette.get(in.readInt()), tileState);
+            }
+        }
+        return List.of(placements);
+    }
+
+    void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warning("Failed to delete build snapshot: " + e.getMessage());
+        }
+    }
+
+    public UUID getOwner() {
+        return owner;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Number of blocks the build changed
+     */
+    public int getRecorded() {
+        return recorded;
+    }
+
+    /**
+     * Bytes the snapshot takes on disk
+     */
+    public long getSizeOnDisk() {
+        return (long) recorded * RECORD_BYTES;
+    }
+}
@@ -0,0 +1,99 @@
+package com.claudenpc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Circuit breaker for the Claude API
+ *
+ * After enough consecutive failures the circuit opens and calls fail fast instead of
+ * queueing on OkHttp's dispatcher for the full timeout. Once the open period has passed,
+ * a single probe request is let through; its outcome closes or re-opens the circuit.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean probeInFlight = new AtomicBoolean();
+    private final AtomicLong trips = new AtomicLong();
+    private volatile long openedAt;
+
+    public CircuitBreaker(int failureThreshold, int openSeconds) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = TimeUnit.SECONDS.toMillis(openSeconds);
+    }
+
+    /**
+     * Check if a request may be sent right now
+     */
+    public boolean allowRequest() {
+        switch (state.get()) {
+            case CLOSED:
+                return true;
+
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt < openMillis) {
+                    return false;
+                }
+                state.compareAndSet(State.OPEN, State.HALF_OPEN);
+                return probeInFlight.compareAndSet(false, true);
+
+            default:
+                // Half-open: only the single probe gets through
+                return probeInFlight.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * Record that the API answered (even with a client error - it is reachable)
+     */
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+        state.set(State.CLOSED);
+        probeInFlight.set(false);
+    }
+
+    /**
+     * Record a network failure or overload response
+     */
+    public void recordFailure() {
+        if (state.get() == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            trip();
+        }
+    }
+
+    private void trip() {
+        openedAt = System.currentTimeMillis();
+        if (state.getAndSet(State.OPEN) != State.OPEN) {
+            trips.incrementAndGet();
+        }
+        probeInFlight.set(false);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public long getTrips() {
+        return trips.get();
+    }
+
+    /**
+     * Thrown when a call is refused because the circuit is open
+     */
+    public static class CircuitOpenException extends java.io.IOException {
+        public CircuitOpenException() {
+            super("Claude API circuit is open");
+        }
+    }
+}
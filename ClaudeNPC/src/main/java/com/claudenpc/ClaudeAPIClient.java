@@ -1,38 +1,68 @@
 package com.claudenpc;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
 import okhttp3.*;
+import okio.BufferedSource;
 import org.bukkit.Bukkit;
 
 import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Client for communicating with Claude API
  */
 public class ClaudeAPIClient {
 
-    private static final String API_URL = "https://api.anthropic.com/v1/messages";
+    public static final String DEFAULT_API_URL = "https://api.anthropic.com/v1/messages";
     private static final String API_VERSION = "2023-06-01";
 
     private final ClaudeNPC plugin;
+    private final String apiUrl;
     private final OkHttpClient httpClient;
-    private final Gson gson;
+    private final CircuitBreaker circuitBreaker;
+    private final UsageTracker usageTracker = new UsageTracker();
+    private final ScheduledExecutorService retryScheduler;
+    private final AtomicLong retries = new AtomicLong();
+    private final Metrics.Histogram latency;
+    private final Metrics.Histogram firstToken;
+    private final Metrics.Counter succeeded;
+    private final Metrics.Counter failed;
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
 
     public ClaudeAPIClient(ClaudeNPC plugin) {
         this.plugin = plugin;
-        this.gson = new Gson();
+        this.apiUrl = plugin.getConfig().getString("claude.api-url", DEFAULT_API_URL);
 
-        int timeout = plugin.getConfig().getInt("claude.timeout", 30);
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(timeout, TimeUnit.SECONDS)
-                .readTimeout(timeout, TimeUnit.SECONDS)
-                .writeTimeout(timeout, TimeUnit.SECONDS)
-                .build();
+        this.maxAttempts = Math.max(1, plugin.getConfig().getInt("claude.retry.max-attempts", 3));
+        this.baseDelayMillis = plugin.getConfig().getLong("claude.retry.base-delay-ms", 500);
+        this.maxDelayMillis = plugin.getConfig().getLong("claude.retry.max-delay-ms", 8000);
+        this.circuitBreaker = new CircuitBreaker(
+                plugin.getConfig().getInt("claude.circuit-breaker.failure-threshold", 5),
+                plugin.getConfig().getInt("claude.circuit-breaker.open-seconds", 30));
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ClaudeNPC-Retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Metrics metrics = plugin.getMetrics();
+        this.latency = metrics.histogram("claudenpc_api_latency_seconds",
+                "Time from sending a request to the full reply, including retries", 1e-6);
+        this.firstToken = metrics.histogram("claudenpc_api_first_token_seconds",
+                "Time from sending a streaming request to the first text", 1e-6);
+        this.succeeded = metrics.counter("claudenpc_api_requests_total", "Claude API calls by outcome",
+                "outcome", "success");
+        this.failed = metrics.counter("claudenpc_api_requests_total", "Claude API calls by outcome",
+                "outcome", "failure");
+
+        this.httpClient = plugin.getHttpTransport().getClient();
     }
 
     /**
@@ -42,50 +72,107 @@ public class ClaudeAPIClient {
      * @return CompletableFuture with Claude's response
      */
     public CompletableFuture<String> sendMessage(List<Message> messages, String systemPrompt) {
+        return sendMessage(messages, systemPrompt, plugin.getConfig().getString("claude.model"),
+                plugin.getConfig().getInt("claude.max-tokens", 1024));
+    }
+
+    /**
+     * Send a message to a specific Claude model and get a response
+     * @param messages List of conversation messages
+     * @param systemPrompt System prompt
+     * @param model Model to use instead of claude.model
+     * @param maxTokens Maximum tokens for the response
+     * @return CompletableFuture with Claude's response
+     */
+    public CompletableFuture<String> sendMessage(List<Message> messages, String systemPrompt, String model, int maxTokens) {
+        return sendMessage(messages, Collections.singletonList(systemPrompt), model, maxTokens, null);
+    }
+
+    /**
+     * Send a message with a multi-part system prompt and get a response
+     * @param messages List of conversation messages
+     * @param systemBlocks System prompt parts, most stable first; each one gets a cache breakpoint
+     * @param model Claude model to use
+     * @param maxTokens Maximum tokens for the response
+     * @param usageTag Key token usage is recorded under (usually the NPC's UUID), or null
+     * @return CompletableFuture with Claude's response
+     */
+    public CompletableFuture<String> sendMessage(List<Message> messages, List<String> systemBlocks, String model,
+                                                 int maxTokens, String usageTag) {
         CompletableFuture<String> future = new CompletableFuture<>();
 
-        String apiKey = plugin.getConfig().getString("claude.api-key", "");
-        if (apiKey.isEmpty()) {
-            future.completeExceptionally(new IllegalStateException("Claude API key not configured"));
+        Request request = buildRequest(messages, systemBlocks, model, maxTokens, false, future);
+        if (request == null) {
             return future;
         }
 
-        // Build request JSON
-        JsonObject requestBody = new JsonObject();
-        requestBody.addProperty("model", plugin.getConfig().getString("claude.model"));
-        requestBody.addProperty("max_tokens", plugin.getConfig().getInt("claude.max-tokens", 1024));
-        requestBody.addProperty("system", systemPrompt);
+        // Execute async
+        long start = System.nanoTime();
+        execute(request, body -> MessagesJson.readResponse(body.charStream(), usageTracker, usageTag), future, 1);
+        return timed(future, start);
+    }
+
+    /**
+     * Send a message to Claude API and stream the response as it is generated
+     * @param messages List of conversation messages
+     * @param systemPrompt System prompt for the NPC's personality
+     * @param onChunk Receives sentence-sized chunks of the reply as they arrive (called on OkHttp's thread)
+     * @return CompletableFuture with the full assembled response
+     */
+    public CompletableFuture<String> streamMessage(List<Message> messages, String systemPrompt, Consumer<String> onChunk) {
+        return streamMessage(messages, Collections.singletonList(systemPrompt), onChunk, null);
+    }
+
+    /**
+     * Stream a response to a message with a multi-part system prompt
+     * @param messages List of conversation messages
+     * @param systemBlocks System prompt parts, most stable first; each one gets a cache breakpoint
+     * @param onChunk Receives sentence-sized chunks of the reply as they arrive (called on OkHttp's thread)
+     * @param usageTag Key token usage is recorded under (usually the NPC's UUID), or null
+     * @return CompletableFuture with the full assembled response
+     */
+    public CompletableFuture<String> streamMessage(List<Message> messages, List<String> systemBlocks,
+                                                   Consumer<String> onChunk, String usageTag) {
+        CompletableFuture<String> future = new CompletableFuture<>();
 
-        // Add messages
-        JsonArray messagesArray = new JsonArray();
-        for (Message msg : messages) {
-            JsonObject messageObj = new JsonObject();
-            messageObj.addProperty("role", msg.getRole());
-            messageObj.addProperty("content", msg.getContent());
-            messagesArray.add(messageObj);
+        Request request = buildRequest(messages, systemBlocks, plugin.getConfig().getString("claude.model"),
+                plugin.getConfig().getInt("claude.max-tokens", 1024), true, future);
+        if (request == null) {
+            return future;
         }
-        requestBody.add("messages", messagesArray);
 
-        // Create HTTP request
-        RequestBody body = RequestBody.create(
-                requestBody.toString(),
-                MediaType.parse("application/json")
-        );
+        long start = System.nanoTime();
+        execute(request, body -> readEventStream(body.source(), onChunk, usageTracker, usageTag,
+                () -> firstToken.recordSince(start)), future, 1);
+        return timed(future, start);
+    }
 
-        Request request = new Request.Builder()
-                .url(API_URL)
-                .header("x-api-key", apiKey)
-                .header("anthropic-version", API_VERSION)
-                .header("content-type", "application/json")
-                .post(body)
-                .build();
+    private CompletableFuture<String> timed(CompletableFuture<String> future, long startNanos) {
+        future.whenComplete((reply, error) -> {
+            latency.recordSince(startNanos);
+            (error == null ? succeeded : failed).increment();
+        });
+        return future;
+    }
+
+    /**
+     * Enqueue a request, retrying network failures and overload responses with backoff
+     *
+     * Only failures that happen before a successful response are retried, so a stream that
+     * breaks after chunks were shown to the player is never replayed.
+     */
+    private void execute(Request request, ResponseParser parser, CompletableFuture<String> future, int attempt) {
+        if (!circuitBreaker.allowRequest()) {
+            future.completeExceptionally(new CircuitBreaker.CircuitOpenException());
+            return;
+        }
 
-        // Execute async
         httpClient.newCall(request).enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
-                plugin.getLogger().warning("Claude API request failed: " + e.getMessage());
-                future.completeExceptionally(e);
+                circuitBreaker.recordFailure();
+                plugin.getLogger().warning("Claude API request failed (attempt " + attempt + "): " + e.getMessage());
+                retryOrFail(request, parser, future, attempt, -1, e);
             }
 
             @Override
@@ -94,39 +181,236 @@ public class ClaudeAPIClient {
                     if (!response.isSuccessful()) {
                         String error = responseBody != null ? responseBody.string() : "Unknown error";
                         plugin.getLogger().warning("Claude API error (" + response.code() + "): " + error);
-                        future.completeExceptionally(new IOException("API error: " + response.code()));
+
+                        APIException apiError = new APIException(response.code());
+                        if (apiError.isRetryable()) {
+                            circuitBreaker.recordFailure();
+                            retryOrFail(request, parser, future, attempt, parseRetryAfter(response), apiError);
+                        } else {
+                            circuitBreaker.recordSuccess();
+                            future.completeExceptionally(apiError);
+                        }
                         return;
                     }
 
                     if (responseBody == null) {
+                        circuitBreaker.recordSuccess();
                         future.completeExceptionally(new IOException("Empty response"));
                         return;
                     }
 
-                    String responseStr = responseBody.string();
-                    JsonObject responseJson = gson.fromJson(responseStr, JsonObject.class);
-
-                    // Extract text from response
-                    JsonArray content = responseJson.getAsJsonArray("content");
-                    if (content != null && content.size() > 0) {
-                        String text = content.get(0).getAsJsonObject().get("text").getAsString();
-                        future.complete(text);
+                    // A stream can still report overload after the 200, so the outcome is only known once it's read
+                    String reply = parser.parse(responseBody);
+                    circuitBreaker.recordSuccess();
+                    future.complete(reply);
+                } catch (Exception e) {
+                    if (e instanceof APIException && ((APIException) e).isOverloaded()) {
+                        circuitBreaker.recordFailure();
                     } else {
-                        future.completeExceptionally(new IOException("No content in response"));
+                        circuitBreaker.recordSuccess();
                     }
-                } catch (Exception e) {
-                    plugin.getLogger().warning("Error parsing Claude response: " + e.getMessage());
+                    plugin.getLogger().warning("Error reading Claude response: " + e.getMessage());
                     future.completeExceptionally(e);
                 }
             }
         });
+    }
 
-        return future;
+    private void retryOrFail(Request request, ResponseParser parser, CompletableFuture<String> future,
+                             int attempt, long retryAfterMillis, IOException error) {
+        if (attempt >= maxAttempts) {
+            future.completeExceptionally(error);
+            return;
+        }
+
+        // Full jitter: a random delay up to the exponential cap spreads out retry storms
+        long cap = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(cap + 1);
+        if (retryAfterMillis >= 0) {
+            // The server knows best, but don't wait longer than a retry is worth
+            if (retryAfterMillis > maxDelayMillis) {
+                future.completeExceptionally(error);
+                return;
+            }
+            delay = Math.max(delay, retryAfterMillis);
+        }
+
+        retries.incrementAndGet();
+        try {
+            retryScheduler.schedule(() -> execute(request, parser, future, attempt + 1), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Client is closing
+            future.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Parse the retry-after header into milliseconds, or -1 if absent
+     */
+    private static long parseRetryAfter(Response response) {
+        String header = response.header("retry-after");
+        if (header == null) {
+            return -1;
+        }
+        try {
+            return (long) (Double.parseDouble(header.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            // HTTP-date form - not sent by the Claude API
+            return -1;
+        }
     }
 
+    /**
+     * Read a server-sent event stream until message_stop, forwarding text deltas
+     * @param usageTracker Receives the token usage from the stream's events
+     * @param onFirstText Called when the first text arrives
+     * @return The full assembled response text
+     */
+    static String readEventStream(BufferedSource source, Consumer<String> onChunk, UsageTracker usageTracker,
+                                  String usageTag, Runnable onFirstText) throws IOException {
+        StringBuilder fullText = new StringBuilder();
+        SentenceChunker chunker = new SentenceChunker(onChunk);
+        MessagesJson.StreamEvent event = new MessagesJson.StreamEvent();
+
+        String line;
+        try {
+            while ((line = source.readUtf8Line()) != null) {
+                // Only data lines carry payloads; the event type is repeated inside the JSON
+                if (!line.startsWith("data:")) {
+                    continue;
+                }
+
+                StringReader data = new StringReader(line);
+                data.skip(5);
+                MessagesJson.readEvent(data, event);
+
+                if (event.type.equals("content_block_delta")) {
+                    if (event.text != null) {
+                        if (fullText.length() == 0) {
+                            onFirstText.run();
+                        }
+                        fullText.append(event.text);
+                        chunker.append(event.text);
+                    }
+                } else if (event.type.equals("message_stop")) {
+                    break;
+                } else if (event.type.equals("error")) {
+                    throw streamError(event.errorType);
+                }
+            }
+        } finally {
+            // Once per stream, including one cut short - the input was billed either way
+            event.usage.record(usageTracker, usageTag);
+        }
+
+        chunker.flush();
+
+        if (fullText.length() == 0) {
+            throw new IOException("No content in response");
+        }
+        return fullText.toString();
+    }
+
+    /**
+     * Turn a mid-stream error event into the exception the same error would have been as a status code
+     */
+    static IOException streamError(String errorType) {
+        if ("overloaded_error".equals(errorType)) {
+            return new APIException(529);
+        }
+        if ("rate_limit_error".equals(errorType)) {
+            return new APIException(429);
+        }
+        return new IOException("Stream error: " + (errorType != null ? errorType : "unknown"));
+    }
+
+    /**
+     * Build the HTTP request for the messages endpoint
+     * @return The request, or null if the future was failed because the client isn't configured
+     */
+    private Request buildRequest(List<Message> messages, List<String> systemBlocks, String model, int maxTokens,
+                                 boolean stream, CompletableFuture<String> future) {
+        String apiKey = plugin.getConfig().getString("claude.api-key", "");
+        if (apiKey.isEmpty()) {
+            future.completeExceptionally(new IllegalStateException("Claude API key not configured"));
+            return null;
+        }
+
+        // Serialized into the connection as it's sent
+        RequestBody body = MessagesJson.requestBody(messages, systemBlocks, model, maxTokens, stream,
+                plugin.getConfig().getBoolean("claude.prompt-caching", true));
+
+        return new Request.Builder()
+                .url(apiUrl)
+                .header("x-api-key", apiKey)
+                .header("anthropic-version", API_VERSION)
+                .header("content-type", "application/json")
+                .post(body)
+                .build();
+    }
+
+    public UsageTracker getUsageTracker() {
+        return usageTracker;
+    }
+
+    /**
+     * Messages endpoint requests are sent to (claude.api-url)
+     */
+    public String getApiUrl() {
+        return apiUrl;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * Stop retrying; the HTTP transport is closed separately
+     */
     public void close() {
-        httpClient.dispatcher().executorService().shutdown();
-        httpClient.connectionPool().evictAll();
+        retryScheduler.shutdownNow();
+    }
+
+    /**
+     * Reads the reply text out of a successful response body
+     */
+    @FunctionalInterface
+    private interface ResponseParser {
+        String parse(ResponseBody body) throws IOException;
+    }
+
+    /**
+     * Non-2xx response from the Claude API
+     */
+    public static class APIException extends IOException {
+        private final int statusCode;
+
+        public APIException(int statusCode) {
+            super("API error: " + statusCode);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * Check if the API is overloaded or rate limiting us (429/529)
+         */
+        public boolean isOverloaded() {
+            return statusCode == 429 || statusCode == 529;
+        }
+
+        /**
+         * Check if the request may succeed if sent again
+         */
+        public boolean isRetryable() {
+            return isOverloaded() || statusCode == 408 || statusCode >= 500;
+        }
     }
 
     /**
@@ -10,9 +10,16 @@ import org.bukkit.plugin.java.JavaPlugin;
 public class ClaudeNPC extends JavaPlugin {
 
     private static ClaudeNPC instance;
+    private HttpTransport httpTransport;
     private ClaudeAPIClient apiClient;
+    private RateLimiter rateLimiter;
+    private ResponseCache responseCache;
+    private SessionRegistry sessionRegistry;
     private ConversationManager conversationManager;
     private ConfigManager configManager;
+    private PythonBridge pythonBridge;
+    private Metrics metrics;
+    private MetricsExporter metricsExporter;
 
     @Override
     public void onEnable() {
@@ -24,6 +31,9 @@ public class ClaudeNPC extends JavaPlugin {
         // Initialize config manager
         configManager = new ConfigManager(this);
 
+        // Metrics come first so every component can record into them
+        metrics = new Metrics();
+
         // Check if Citizens is loaded
         if (getServer().getPluginManager().getPlugin("Citizens") == null) {
             getLogger().severe("Citizens plugin not found! ClaudeNPC requires Citizens to work.");
@@ -38,13 +48,29 @@ public class ClaudeNPC extends JavaPlugin {
             getLogger().warning("Plugin will load but NPCs won't respond until API key is configured.");
         }
 
-        // Initialize API client
+        // Initialize API client on the shared transport (claude.http, claude.timeouts)
+        httpTransport = new HttpTransport(this);
         apiClient = new ClaudeAPIClient(this);
+        httpTransport.prewarm(apiClient.getApiUrl(), getConfig().getInt("claude.http.prewarm-connections", 2));
+
+        // Initialize rate limiter (performance.rate-limit)
+        rateLimiter = new RateLimiter(this);
+
+        // Initialize response cache (performance.cache-duration)
+        responseCache = new ResponseCache(this);
 
         // Initialize conversation manager
         conversationManager = new ConversationManager(this);
 
+        // Initialize Python bridge (structure builds, placement and undo history)
+        pythonBridge = new PythonBridge(this);
+
+        // Publish counts the components keep themselves (metrics.http-port, metrics.export-file)
+        registerMetrics();
+        metricsExporter = new MetricsExporter(this, metrics);
+
         // Register NPC listener
+        sessionRegistry = new SessionRegistry();
         getServer().getPluginManager().registerEvents(new NPCListener(this), this);
 
         // Register command
@@ -62,26 +88,143 @@ public class ClaudeNPC extends JavaPlugin {
             conversationManager.shutdown();
         }
 
+        // Stop Python workers and pending placements
+        if (pythonBridge != null) {
+            pythonBridge.close();
+        }
+
+        if (metricsExporter != null) {
+            metricsExporter.close();
+        }
+
+        // Fail any requests still waiting for a rate limit slot
+        if (rateLimiter != null) {
+            rateLimiter.shutdown();
+        }
+
         // Close API client
         if (apiClient != null) {
             apiClient.close();
         }
+        if (httpTransport != null) {
+            httpTransport.close();
+        }
 
         getLogger().info("ClaudeNPC disabled!");
     }
 
+    /**
+     * Expose the counters the components already keep as metrics, read when rendered
+     */
+    private void registerMetrics() {
+        UsageTracker usage = apiClient.getUsageTracker();
+        metrics.counterFunction("claudenpc_api_tokens_total", "Tokens reported by the Claude API",
+                () -> usage.getTotals().values().stream().mapToLong(UsageTracker.Totals::getInputTokens).sum(),
+                "type", "input");
+        metrics.counterFunction("claudenpc_api_tokens_total", "Tokens reported by the Claude API",
+                () -> usage.getTotals().values().stream().mapToLong(UsageTracker.Totals::getOutputTokens).sum(),
+                "type", "output");
+        metrics.counterFunction("claudenpc_api_tokens_total", "Tokens reported by the Claude API",
+                () -> usage.getTotals().values().stream().mapToLong(UsageTracker.Totals::getCacheReadTokens).sum(),
+                "type", "cache_read");
+        metrics.counterFunction("claudenpc_api_tokens_total", "Tokens reported by the Claude API",
+                () -> usage.getTotals().values().stream().mapToLong(UsageTracker.Totals::getCacheWriteTokens).sum(),
+                "type", "cache_write");
+        metrics.counterFunction("claudenpc_api_retries_total", "Claude API requests retried", apiClient::getRetries);
+        metrics.counterFunction("claudenpc_api_circuit_trips_total", "Times the circuit breaker opened",
+                apiClient.getCircuitBreaker()::getTrips);
+        metrics.gauge("claudenpc_http_calls", "Claude API calls in the HTTP dispatcher by state",
+                httpTransport::getRunningCalls, "state", "running");
+        metrics.gauge("claudenpc_http_calls", "Claude API calls in the HTTP dispatcher by state",
+                httpTransport::getQueuedCalls, "state", "queued");
+        metrics.gauge("claudenpc_http_connections", "Pooled connections to the Claude API by state",
+                () -> httpTransport.getConnections() - httpTransport.getIdleConnections(), "state", "active");
+        metrics.gauge("claudenpc_http_connections", "Pooled connections to the Claude API by state",
+                httpTransport::getIdleConnections, "state", "idle");
+
+        metrics.counterFunction("claudenpc_rate_limit_admitted_total", "Requests let through the rate limiter",
+                rateLimiter::getAdmitted);
+        metrics.counterFunction("claudenpc_rate_limit_rejected_total", "Requests refused by the rate limiter",
+                rateLimiter::getRejectedPlayer, "reason", "player_limit");
+        metrics.counterFunction("claudenpc_rate_limit_rejected_total", "Requests refused by the rate limiter",
+                rateLimiter::getRejectedGlobal, "reason", "queue_full");
+        metrics.counterFunction("claudenpc_rate_limit_rejected_total", "Requests refused by the rate limiter",
+                rateLimiter::getTimedOut, "reason", "timed_out");
+        metrics.gauge("claudenpc_rate_limit_queue_depth", "Requests waiting for a rate limit slot",
+                rateLimiter::getQueueDepth);
+
+        metrics.counterFunction("claudenpc_response_cache_lookups_total", "Response cache lookups by result",
+                responseCache::getHits, "result", "hit");
+        metrics.counterFunction("claudenpc_response_cache_lookups_total", "Response cache lookups by result",
+                responseCache::getMisses, "result", "miss");
+        metrics.counterFunction("claudenpc_response_cache_lookups_total", "Response cache lookups by result",
+                responseCache::getCoalesced, "result", "coalesced");
+        metrics.counterFunction("claudenpc_response_cache_evictions_total", "Responses dropped from the cache",
+                responseCache::getEvictions);
+        metrics.gauge("claudenpc_response_cache_entries", "Responses currently cached", responseCache::size);
+
+        PythonWorkerPool workers = pythonBridge.getWorkerPool();
+        if (workers != null) {
+            metrics.counterFunction("claudenpc_python_worker_jobs_total", "Python worker jobs by outcome",
+                    workers::getCompleted, "outcome", "success");
+            metrics.counterFunction("claudenpc_python_worker_jobs_total", "Python worker jobs by outcome",
+                    workers::getFailed, "outcome", "failure");
+            metrics.counterFunction("claudenpc_python_worker_timeouts_total", "Python jobs killed at the timeout",
+                    workers::getTimeouts);
+            metrics.counterFunction("claudenpc_python_worker_restarts_total", "Python workers restarted",
+                    workers::getRestarts);
+            metrics.gauge("claudenpc_python_worker_queue_depth", "Python jobs waiting for a worker",
+                    workers::getQueueDepth);
+        }
+
+        BuildQueue builds = pythonBridge.getBuildQueue();
+        metrics.gauge("claudenpc_build_queue_depth", "Builds waiting to start", builds::getQueueDepth);
+        metrics.counterFunction("claudenpc_builds_total", "Finished builds by outcome",
+                builds::getCompleted, "outcome", "success");
+        metrics.counterFunction("claudenpc_builds_total", "Finished builds by outcome",
+                builds::getFailed, "outcome", "failure");
+        metrics.counterFunction("claudenpc_builds_total", "Finished builds by outcome",
+                builds::getRejected, "outcome", "refused");
+        metrics.gauge("claudenpc_placement_jobs", "Structures waiting for or in placement",
+                pythonBridge.getPlacementScheduler()::getQueuedJobs);
+    }
+
     public static ClaudeNPC getInstance() {
         return instance;
     }
 
+    public HttpTransport getHttpTransport() {
+        return httpTransport;
+    }
+
     public ClaudeAPIClient getAPIClient() {
         return apiClient;
     }
 
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public SessionRegistry getSessionRegistry() {
+        return sessionRegistry;
+    }
+
     public ConversationManager getConversationManager() {
         return conversationManager;
     }
 
+    public PythonBridge getPythonBridge() {
+        return pythonBridge;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
     public ConfigManager getConfigManager() {
         return configManager;
     }
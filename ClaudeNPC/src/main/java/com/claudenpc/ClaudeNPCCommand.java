@@ -1,19 +1,29 @@
 package com.claudenpc;
 
+import net.citizensnpcs.api.CitizensAPI;
+import net.citizensnpcs.api.npc.NPC;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Command handler for /claudenpc
  */
 public class ClaudeNPCCommand implements CommandExecutor {
 
     private final ClaudeNPC plugin;
+    private final LoadTest loadTest;
 
     public ClaudeNPCCommand(ClaudeNPC plugin) {
         this.plugin = plugin;
+        this.loadTest = new LoadTest(plugin);
     }
 
     @Override
@@ -32,6 +42,7 @@ public class ClaudeNPCCommand implements CommandExecutor {
             case "reload":
                 plugin.reloadConfig();
                 plugin.getConfigManager().reload();
+                plugin.getRateLimiter().reload();
                 sender.sendMessage("§aClaudeNPC configuration reloaded!");
                 return true;
 
@@ -39,6 +50,34 @@ public class ClaudeNPCCommand implements CommandExecutor {
                 sendStatus(sender);
                 return true;
 
+            case "usage":
+                sendUsage(sender);
+                return true;
+
+            case "metrics":
+                sendMetrics(sender);
+                return true;
+
+            case "build":
+                queueBuild(sender, args);
+                return true;
+
+            case "jobs":
+                sendJobs(sender);
+                return true;
+
+            case "cancel":
+                cancelBuild(sender, args);
+                return true;
+
+            case "undo":
+                undoBuild(sender);
+                return true;
+
+            case "loadtest":
+                runLoadTest(sender, args);
+                return true;
+
             case "help":
                 sendHelp(sender);
                 return true;
@@ -54,6 +93,13 @@ public class ClaudeNPCCommand implements CommandExecutor {
         sender.sendMessage("§6§lClaudeNPC Commands:");
         sender.sendMessage("§e/claudenpc reload §7- Reload configuration");
         sender.sendMessage("§e/claudenpc status §7- Show plugin status");
+        sender.sendMessage("§e/claudenpc usage §7- Show token usage and prompt cache savings per NPC");
+        sender.sendMessage("§e/claudenpc metrics §7- Show latency, queue and build metrics");
+        sender.sendMessage("§e/claudenpc build <circuit> [high|normal|low] §7- Build a circuit where you stand");
+        sender.sendMessage("§e/claudenpc jobs §7- Show queued and running builds");
+        sender.sendMessage("§e/claudenpc cancel <id> §7- Cancel a build");
+        sender.sendMessage("§e/claudenpc undo §7- Undo your most recent structure build");
+        sender.sendMessage("§e/claudenpc loadtest <conversations> [messages] §7- Simulate conversations against a mock API");
         sender.sendMessage("§e/claudenpc help §7- Show this help");
     }
 
@@ -63,6 +109,53 @@ public class ClaudeNPCCommand implements CommandExecutor {
         sender.sendMessage("§7Model: §f" + plugin.getConfig().getString("claude.model"));
         sender.sendMessage("§7Memory Size: §f" + plugin.getConfig().getInt("npc.memory-size") + " messages");
 
+        ConversationManager conversations = plugin.getConversationManager();
+        if (conversations != null) {
+            int sessions = plugin.getSessionRegistry() != null ? plugin.getSessionRegistry().size() : 0;
+            sender.sendMessage("§7Talking: §f" + sessions + " §7players");
+            sender.sendMessage("§7Conversations: §f" + conversations.getActiveConversations() + " §7active, §f"
+                    + conversations.getMergedMessages() + " §7messages merged into queued turns, §f"
+                    + conversations.getSummaries() + " §7summaries");
+        }
+
+        ClaudeAPIClient apiClient = plugin.getAPIClient();
+        if (apiClient != null) {
+            CircuitBreaker breaker = apiClient.getCircuitBreaker();
+            String state = breaker.getState() == CircuitBreaker.State.CLOSED ? "§aClosed"
+                    : breaker.getState() == CircuitBreaker.State.OPEN ? "§cOpen" : "§eHalf-open";
+            sender.sendMessage("§7Circuit Breaker: " + state + " §7(tripped §f" + breaker.getTrips()
+                    + " §7times, §f" + apiClient.getRetries() + " §7retries)");
+        }
+
+        HttpTransport transport = plugin.getHttpTransport();
+        if (transport != null) {
+            sender.sendMessage("§7HTTP: §f" + transport.getRunningCalls() + " §7running, §f"
+                    + transport.getQueuedCalls() + " §7queued, §f" + transport.getConnections() + " §7connections (§f"
+                    + transport.getIdleConnections() + " §7idle)");
+        }
+
+        RateLimiter limiter = plugin.getRateLimiter();
+        if (limiter != null) {
+            sender.sendMessage("§7Rate Limit: §f" + plugin.getConfig().getInt("performance.rate-limit", 60) + "/min §7global, §f"
+                    + plugin.getConfig().getInt("performance.player-rate-limit", 10) + "/min §7per player");
+            sender.sendMessage("§7Requests: §f" + limiter.getAdmitted() + " §7admitted, §f" + limiter.getQueued()
+                    + " §7queued (§f" + limiter.getQueueDepth() + " §7waiting)");
+            sender.sendMessage("§7Rejected: §f" + limiter.getRejectedPlayer() + " §7player limit, §f"
+                    + limiter.getRejectedGlobal() + " §7queue full, §f" + limiter.getTimedOut() + " §7timed out");
+        }
+
+        ResponseCache cache = plugin.getResponseCache();
+        if (cache != null && cache.isEnabled()) {
+            long lookups = cache.getHits() + cache.getMisses() + cache.getCoalesced();
+            long saved = cache.getHits() + cache.getCoalesced();
+            sender.sendMessage("§7Response Cache: §f" + cache.size() + " §7entries, §f"
+                    + (lookups > 0 ? saved * 100 / lookups : 0) + "% §7hit rate");
+            sender.sendMessage("§7Cache: §f" + cache.getHits() + " §7hits, §f" + cache.getMisses() + " §7misses, §f"
+                    + cache.getCoalesced() + " §7coalesced, §f" + cache.getEvictions() + " §7evicted");
+        } else {
+            sender.sendMessage("§7Response Cache: §fDisabled");
+        }
+
         boolean hasKey = plugin.getConfigManager().hasAPIKey();
         sender.sendMessage("§7API Key: " + (hasKey ? "§aConfigured ✓" : "§cNot Set ✗"));
 
@@ -71,4 +164,234 @@ public class ClaudeNPCCommand implements CommandExecutor {
             sender.sendMessage("§7Add your key to config.yml");
         }
     }
+
+    private void sendUsage(CommandSender sender) {
+        ClaudeAPIClient apiClient = plugin.getAPIClient();
+        Map<String, UsageTracker.Totals> totals = apiClient != null
+                ? apiClient.getUsageTracker().getTotals() : Collections.emptyMap();
+
+        sender.sendMessage("§6§lClaudeNPC Token Usage:");
+        if (totals.isEmpty()) {
+            sender.sendMessage("§7No API calls yet.");
+            return;
+        }
+
+        for (Map.Entry<String, UsageTracker.Totals> entry : totals.entrySet()) {
+            UsageTracker.Totals usage = entry.getValue();
+            sender.sendMessage("§e" + npcName(entry.getKey()) + "§7: §f" + usage.getInputTokens() + " §7in, §f"
+                    + usage.getOutputTokens() + " §7out, §f" + usage.getCacheReadTokens() + " §7cache read, §f"
+                    + usage.getCacheWriteTokens() + " §7cache write (§a" + usage.getCacheHitPercent() + "% §7cached)");
+        }
+    }
+
+    private void queueBuild(CommandSender sender, String[] args) {
+        PythonBridge bridge = plugin.getPythonBridge();
+        if (bridge == null) {
+            sender.sendMessage("§cStructure building is not enabled.");
+            return;
+        }
+        if (!(sender instanceof Player)) {
+            sender.sendMessage("§cOnly players can build; the circuit is placed where you stand.");
+            return;
+        }
+        if (args.length < 2) {
+            sender.sendMessage("§cUsage: /claudenpc build <circuit> [high|normal|low]");
+            sender.sendMessage("§7Circuits: §f" + String.join(", ", QuantumCircuitGenerator.getNames()));
+            return;
+        }
+
+        String circuit = args[1];
+        if (!QuantumCircuitGenerator.getNames().contains(circuit) && bridge.getBlueprints().get(circuit) == null) {
+            sender.sendMessage("§cUnknown circuit: " + circuit);
+            sender.sendMessage("§7Circuits: §f" + String.join(", ", QuantumCircuitGenerator.getNames()));
+            return;
+        }
+
+        BuildQueue.Priority priority = BuildQueue.Priority.NORMAL;
+        if (args.length > 2) {
+            try {
+                priority = BuildQueue.Priority.valueOf(args[2].toUpperCase());
+            } catch (IllegalArgumentException e) {
+                sender.sendMessage("§cUnknown priority: " + args[2]);
+                return;
+            }
+        }
+
+        Player player = (Player) sender;
+        BuildQueue.BuildJob job;
+        try {
+            job = bridge.queueQuantumCircuit(circuit, player.getLocation().getBlock().getLocation(),
+                    player.getUniqueId(), priority);
+        } catch (BuildQueue.BuildRejectedException e) {
+            sender.sendMessage("§c" + e.getMessage() + ".");
+            return;
+        }
+
+        sender.sendMessage("§eQueued build §f#" + job.getId() + " §e(" + circuit + "), position §f"
+                + job.getQueuePosition() + "§e.");
+        job.getCompletion().whenComplete((placed, error) -> {
+            // Completes on a build, placement or I/O thread
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (error == null) {
+                    sender.sendMessage("§aBuild #" + job.getId() + " finished: §f" + placed + " §ablocks placed.");
+                } else if (job.getState() == BuildQueue.State.CANCELLED) {
+                    sender.sendMessage("§7Build #" + job.getId() + " cancelled.");
+                } else {
+                    sender.sendMessage("§cBuild #" + job.getId() + " failed: " + error.getMessage());
+                }
+            });
+        });
+    }
+
+    private void sendJobs(CommandSender sender) {
+        PythonBridge bridge = plugin.getPythonBridge();
+        if (bridge == null) {
+            sender.sendMessage("§cStructure building is not enabled.");
+            return;
+        }
+
+        BuildQueue queue = bridge.getBuildQueue();
+        sender.sendMessage("§6§lClaudeNPC Builds:");
+        sender.sendMessage("§7Finished: §f" + queue.getCompleted() + " §7completed, §f" + queue.getFailed()
+                + " §7failed, §f" + queue.getRejected() + " §7refused");
+
+        List<BuildQueue.BuildJob> jobs = queue.getJobs();
+        if (jobs.isEmpty()) {
+            sender.sendMessage("§7No builds in progress.");
+            return;
+        }
+        for (BuildQueue.BuildJob job : jobs) {
+            String state;
+            switch (job.getState()) {
+                case QUEUED:
+                    state = "§equeued §7(position " + job.getQueuePosition() + ")";
+                    break;
+                case GENERATING:
+                    state = "§bgenerating";
+                    break;
+                case PLACING:
+                    state = "§aplacing §7(" + Math.round(job.getProgress() * 100) + "%)";
+                    break;
+                default:
+                    state = "§7" + job.getState().name().toLowerCase();
+            }
+            sender.sendMessage("§e#" + job.getId() + " §f" + job.getDescription() + " §7for §f"
+                    + playerName(job.getOwner()) + " §7[" + job.getPriority().name().toLowerCase() + "] " + state);
+        }
+    }
+
+    private void cancelBuild(CommandSender sender, String[] args) {
+        PythonBridge bridge = plugin.getPythonBridge();
+        if (bridge == null) {
+            sender.sendMessage("§cStructure building is not enabled.");
+            return;
+        }
+        if (args.length < 2) {
+            sender.sendMessage("§cUsage: /claudenpc cancel <id>");
+            return;
+        }
+
+        long id;
+        try {
+            id = Long.parseLong(args[1].replace("#", ""));
+        } catch (NumberFormatException e) {
+            sender.sendMessage("§cNot a build id: " + args[1]);
+            return;
+        }
+
+        // Admins can cancel any build
+        if (bridge.getBuildQueue().cancel(id, null)) {
+            sender.sendMessage("§eCancelling build #" + id + "...");
+        } else {
+            sender.sendMessage("§7No build #" + id + " in progress.");
+        }
+    }
+
+    private void runLoadTest(CommandSender sender, String[] args) {
+        if (plugin.getConversationManager() == null) {
+            sender.sendMessage("§cClaudeNPC is not fully enabled.");
+            return;
+        }
+        if (args.length < 2) {
+            sender.sendMessage("§cUsage: /claudenpc loadtest <conversations> [messages]");
+            return;
+        }
+
+        int conversations;
+        int messages;
+        try {
+            conversations = Integer.parseInt(args[1]);
+            messages = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        } catch (NumberFormatException e) {
+            sender.sendMessage("§cUsage: /claudenpc loadtest <conversations> [messages]");
+            return;
+        }
+        if (conversations < 1 || conversations > 5000 || messages < 1 || messages > 100) {
+            sender.sendMessage("§cConversations must be 1-5000 and messages 1-100.");
+            return;
+        }
+
+        CompletableFuture<LoadTest.Report> report;
+        try {
+            report = loadTest.run(conversations, messages);
+        } catch (IllegalStateException e) {
+            sender.sendMessage("§c" + e.getMessage());
+            return;
+        }
+
+        sender.sendMessage("§eRunning " + conversations + " conversations of " + messages + " messages against §f"
+                + plugin.getAPIClient().getApiUrl() + "§e...");
+        report.thenAccept(result -> plugin.getServer().getScheduler().runTask(plugin, () -> {
+            sender.sendMessage("§6§lLoad Test Results:");
+            result.describe().forEach(sender::sendMessage);
+        }));
+    }
+
+    private void sendMetrics(CommandSender sender) {
+        sender.sendMessage("§6§lClaudeNPC Metrics §7(latencies in seconds):");
+        plugin.getMetrics().describe().forEach(sender::sendMessage);
+    }
+
+    private void undoBuild(CommandSender sender) {
+        PythonBridge bridge = plugin.getPythonBridge();
+        if (bridge == null) {
+            sender.sendMessage("§cStructure building is not enabled.");
+            return;
+        }
+
+        // The console undoes the most recent build by anyone
+        UUID owner = sender instanceof Player ? ((Player) sender).getUniqueId() : null;
+        CompletableFuture<BlockPlacementScheduler.PlacementJob> undo = bridge.getBuildHistory().undo(owner);
+        if (undo == null) {
+            sender.sendMessage("§7Nothing to undo.");
+            return;
+        }
+
+        sender.sendMessage("§eUndoing your last build...");
+        undo.thenCompose(BlockPlacementScheduler.PlacementJob::getCompletion)
+                .whenComplete((restored, error) -> plugin.getServer().getScheduler().runTask(plugin, () ->
+                        sender.sendMessage(error == null
+                                ? "§aRestored §f" + restored + " §ablocks §7(entities such as item frames are not restored)."
+                                : "§cUndo failed: " + error.getMessage())));
+    }
+
+    private String playerName(UUID owner) {
+        if (owner == null) {
+            return "console";
+        }
+        String name = plugin.getServer().getOfflinePlayer(owner).getName();
+        return name != null ? name : owner.toString();
+    }
+
+    /**
+     * Resolve a usage tag (an NPC's UUID) to the NPC's name
+     */
+    private String npcName(String tag) {
+        try {
+            NPC npc = CitizensAPI.getNPCRegistry().getByUniqueId(UUID.fromString(tag));
+            return npc != null ? npc.getName() : tag;
+        } catch (IllegalArgumentException e) {
+            return tag;
+        }
+    }
 }
@@ -47,4 +47,11 @@ public class ConfigManager {
         return plugin.getConfig().getString("npc.default-personality",
                 "You are a helpful NPC in a Minecraft server. Keep responses concise (1-3 sentences).");
     }
+
+    /**
+     * Check if replies should be streamed to players as they are generated
+     */
+    public boolean isStreamingEnabled() {
+        return plugin.getConfig().getBoolean("claude.stream", true);
+    }
 }
@@ -5,17 +5,32 @@ import com.claudenpc.ClaudeAPIClient.Message;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Manages conversations between players and NPCs
  */
 public class ConversationManager {
 
+    private static final String SUMMARY_ROLE = "summary";
+    private static final String SUMMARY_HEADER = "Summary of your earlier conversation with this player:\n";
+
     private final ClaudeNPC plugin;
     private final Map<String, ConversationHistory> conversations = new ConcurrentHashMap<>();
+    // Cleared conversations whose last turn is still running, so a reopened one waits for it
+    private final Map<String, CompletableFuture<Void>> settling = new ConcurrentHashMap<>();
+    private final AtomicLong mergedMessages = new AtomicLong();
+    private final AtomicLong summaries = new AtomicLong();
+    private final ConversationStore store;
+    private final ConversationSummarizer summarizer;
 
     public ConversationManager(ClaudeNPC plugin) {
         this.plugin = plugin;
+        this.store = createStore();
+        this.summarizer = new ConversationSummarizer(plugin);
 
         // Start cleanup task for old conversations
         int timeout = plugin.getConfig().getInt("npc.memory-timeout", 30);
@@ -30,47 +45,393 @@ public class ConversationManager {
      * @param npcUUID NPC's UUID
      * @param message Player's message
      * @param systemPrompt NPC's personality/system prompt
-     * @return CompletableFuture with Claude's response
+     * @return CompletableFuture with Claude's response (null if merged into a queued turn)
      */
     public CompletableFuture<String> sendMessage(UUID playerUUID, UUID npcUUID, String message, String systemPrompt) {
-        String conversationKey = playerUUID + ":" + npcUUID;
+        return sendMessage(playerUUID, npcUUID, message, systemPrompt, null);
+    }
+
+    /**
+     * Send a message to Claude, streaming the reply as it is generated
+     *
+     * Only one call is in flight per player-NPC pair. Messages sent while a reply is pending
+     * are queued as the next turn, and any further messages are merged into that same turn.
+     * @param playerUUID Player's UUID
+     * @param npcUUID NPC's UUID
+     * @param message Player's message
+     * @param systemPrompt NPC's personality/system prompt
+     * @param onChunk Receives sentence-sized chunks as they arrive, or null to wait for the whole reply
+     * @return CompletableFuture with Claude's full response, or null if the message was merged into
+     *         a turn already answered through an earlier message's future
+     */
+    public CompletableFuture<String> sendMessage(UUID playerUUID, UUID npcUUID, String message, String systemPrompt,
+                                                 Consumer<String> onChunk) {
+        String conversationKey = conversationKey(playerUUID, npcUUID);
+
+        while (true) {
+            // Get or create conversation history, loading it from the store on first access
+            ConversationHistory history = conversations.computeIfAbsent(conversationKey, this::openHistory);
+
+            PendingTurn turn;
+            synchronized (history) {
+                if (history.closed) {
+                    // Cleared after we looked it up - the next lookup opens a fresh history
+                    continue;
+                }
+
+                if (history.inFlight) {
+                    if (history.nextTurn == null) {
+                        // Wait for the current reply, then send this as the next turn
+                        history.nextTurn = new PendingTurn(message, systemPrompt, onChunk);
+                        return history.nextTurn.future;
+                    }
 
-        // Get or create conversation history
-        ConversationHistory history = conversations.computeIfAbsent(conversationKey,
-                k -> new ConversationHistory(plugin.getConfig().getInt("npc.memory-size", 5)));
+                    // Already a turn waiting - fold this message into it
+                    history.nextTurn.merge(message, systemPrompt);
+                    mergedMessages.incrementAndGet();
+                    return CompletableFuture.completedFuture(null);
+                }
 
-        // Add user message to history
-        history.addMessage("user", message);
+                history.inFlight = true;
+                turn = new PendingTurn(message, systemPrompt, onChunk);
+            }
+
+            dispatch(playerUUID, npcUUID, history, turn);
+            return turn.future;
+        }
+    }
+
+    /**
+     * Send a turn to Claude, then start the next queued turn once the reply is in
+     */
+    private void dispatch(UUID playerUUID, UUID npcUUID, ConversationHistory history, PendingTurn turn) {
+        history.loaded
+                .thenCompose(v -> callClaude(playerUUID, npcUUID, history, turn.getMessage(), turn.systemPrompt, turn.onChunk))
+                .whenComplete((response, error) -> {
+                    // Finish this turn first so replies reach the player in order
+                    if (error != null) {
+                        turn.future.completeExceptionally(error);
+                    } else {
+                        turn.future.complete(response);
+                    }
+
+                    // The player has the reply; a turn queued meanwhile waits for the summary
+                    CompletableFuture.completedFuture(null)
+                            .thenCompose(v -> foldHistory(npcUUID, history))
+                            .whenComplete((v, foldError) -> {
+                                if (foldError != null) {
+                                    plugin.getLogger().warning("Failed to summarize conversation " + history.key + ": " + foldError.getMessage());
+                                }
+                                release(playerUUID, npcUUID, history);
+                            });
+                });
+    }
+
+    /**
+     * End a turn: start the queued one, or let a clear waiting on this conversation go ahead
+     */
+    private void release(UUID playerUUID, UUID npcUUID, ConversationHistory history) {
+        PendingTurn next;
+        CompletableFuture<Void> settled = null;
+        synchronized (history) {
+            next = history.nextTurn;
+            history.nextTurn = null;
+            history.inFlight = next != null;
+            if (!history.inFlight) {
+                settled = history.settled;
+            }
+        }
+
+        if (next != null) {
+            dispatch(playerUUID, npcUUID, history, next);
+        } else if (settled != null) {
+            settled.complete(null);
+        }
+    }
+
+    private CompletableFuture<String> callClaude(UUID playerUUID, UUID npcUUID, ConversationHistory history,
+                                                 String message, String systemPrompt, Consumer<String> onChunk) {
+        // The player's message joins the history only along with its reply, so a refused or
+        // failed call leaves nothing behind that a retry would repeat
+        List<Message> messages = fitContext(history, message);
+        // Personality first: it is shared by every player talking to this NPC, so it caches best
+        List<String> systemBlocks = history.summary != null
+                ? Arrays.asList(systemPrompt, SUMMARY_HEADER + history.summary)
+                : Collections.singletonList(systemPrompt);
+        return requestReply(playerUUID, npcUUID, history, message, messages, systemBlocks, onChunk);
+    }
+
+    /**
+     * Pick the newest messages, ending with the player's new one, that fit
+     * npc.context.max-tokens alongside the summary
+     *
+     * Only trims what this request sends. Folding into the summary happens after the reply,
+     * in {@link #foldHistory}, so it never holds up the answer it follows. A turn queued
+     * meanwhile does wait for it, so that it is sent with the new summary.
+     */
+    private List<Message> fitContext(ConversationHistory history, String message) {
+        List<Message> messages = new ArrayList<>(history.getMessages());
+        messages.add(new Message("user", message));
+        int budget = plugin.getConfig().getInt("npc.context.max-tokens", 2000);
+        if (budget <= 0) {
+            return messages;
+        }
+
+        int used = ConversationSummarizer.estimateTokens(history.summary);
+        int keepFrom = messages.size();
+        while (keepFrom > 0) {
+            int cost = ConversationSummarizer.estimateTokens(messages.get(keepFrom - 1));
+            // The newest message is always sent, even if it alone is over budget
+            if (used + cost > budget && keepFrom < messages.size()) {
+                break;
+            }
+            used += cost;
+            keepFrom--;
+        }
+        keepFrom = startOfTurn(messages, keepFrom);
+        return keepFrom == 0 ? messages : messages.subList(keepFrom, messages.size());
+    }
+
+    /**
+     * Fold the oldest turns into the summary once the history is past its high-water mark
+     *
+     * The mark is npc.context.max-tokens, or the history having no room left for another
+     * exchange under npc.memory-size. Folding then goes down to half of both, so a summary
+     * is written every few turns rather than on every turn of a long conversation. Turns
+     * the size cap evicted anyway (when restoring a long stored conversation) are folded in
+     * too. Runs while the conversation's mailbox is held, so nothing else changes the history.
+     */
+    private CompletableFuture<Void> foldHistory(UUID npcUUID, ConversationHistory history) {
+        List<Message> evicted = history.takeEvicted();
+        int budget = plugin.getConfig().getInt("npc.context.max-tokens", 2000);
+        if (budget <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
 
-        // Get messages for API call
         List<Message> messages = history.getMessages();
+        int capacity = history.messages.capacity();
+        int used = ConversationSummarizer.estimateTokens(history.summary);
+        for (Message msg : messages) {
+            used += ConversationSummarizer.estimateTokens(msg);
+        }
+        if (evicted.isEmpty() && used <= budget && messages.size() + 2 <= capacity) {
+            return CompletableFuture.completedFuture(null);
+        }
 
-        // Call Claude API
-        return plugin.getAPIClient().sendMessage(messages, systemPrompt)
-                .thenApply(response -> {
-                    // Add assistant response to history
-                    history.addMessage("assistant", response);
-                    return response;
+        // Keep the newest turns that fit under the low-water mark
+        int kept = ConversationSummarizer.estimateTokens(history.summary);
+        int keepFrom = messages.size();
+        while (keepFrom > 0 && messages.size() - keepFrom < capacity / 2) {
+            int cost = ConversationSummarizer.estimateTokens(messages.get(keepFrom - 1));
+            if (kept + cost > budget / 2) {
+                break;
+            }
+            kept += cost;
+            keepFrom--;
+        }
+        keepFrom = startOfTurn(messages, keepFrom);
+
+        if (keepFrom == 0 && evicted.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        int folded = keepFrom;
+        List<Message> toFold = new ArrayList<>(evicted);
+        toFold.addAll(messages.subList(0, folded));
+        List<Message> keptMessages = messages.subList(folded, messages.size());
+        return summarizer.summarize(history.summary, toFold, npcUUID.toString()).thenAccept(summary -> {
+            history.summary = summary;
+            history.messages.dropOldest(folded);
+            summaries.incrementAndGet();
+
+            // The store treats everything before the summary as covered by it,
+            // so the turns we kept are written again after it
+            synchronized (history) {
+                if (history.closed) {
+                    return;
+                }
+                store.saveSummary(history.key, summary);
+                for (Message msg : keptMessages) {
+                    store.append(history.key, msg);
+                }
+            }
+        });
+    }
+
+    /**
+     * Move a cut forward to the next player message; requests have to start with one
+     */
+    private static int startOfTurn(List<Message> messages, int from) {
+        while (from < messages.size() - 1 && !messages.get(from).getRole().equals("user")) {
+            from++;
+        }
+        return from;
+    }
+
+    private CompletableFuture<String> requestReply(UUID playerUUID, UUID npcUUID, ConversationHistory history,
+                                                   String message, List<Message> messages, List<String> systemBlocks,
+                                                   Consumer<String> onChunk) {
+        // Set once this caller's own API call runs, so we know whether chunks were already streamed
+        AtomicBoolean calledAPI = new AtomicBoolean();
+        Supplier<CompletableFuture<String>> apiCall = () -> plugin.getRateLimiter().acquire(playerUUID)
+                .thenCompose(v -> {
+                    calledAPI.set(true);
+                    ClaudeAPIClient apiClient = plugin.getAPIClient();
+                    String usageTag = npcUUID.toString();
+                    return onChunk != null
+                            ? apiClient.streamMessage(messages, systemBlocks, onChunk, usageTag)
+                            : apiClient.sendMessage(messages, systemBlocks, plugin.getConfigManager().getModel(),
+                                    plugin.getConfig().getInt("claude.max-tokens", 1024), usageTag);
                 });
+
+        // Identical questions are answered from the cache without touching the rate limit
+        ResponseCache cache = plugin.getResponseCache();
+        CompletableFuture<String> reply = cache.isEnabled()
+                ? cache.get(cache.keyFor(plugin.getConfigManager().getModel(), String.join("\0", systemBlocks), messages), apiCall)
+                : apiCall.get();
+
+        return reply.thenApply(response -> {
+            // Cached and coalesced replies haven't been shown yet
+            if (onChunk != null && !calledAPI.get()) {
+                SentenceChunker chunker = new SentenceChunker(onChunk);
+                chunker.append(response);
+                chunker.flush();
+            }
+
+            // Now the exchange goes into the history (the full text, even when streamed)
+            addMessage(history, "user", message);
+            addMessage(history, "assistant", response);
+            return response;
+        });
+    }
+
+    private void addMessage(ConversationHistory history, String role, String content) {
+        history.addMessage(role, content);
+        synchronized (history) {
+            // A cleared conversation's last turn must not write it back
+            if (!history.closed) {
+                store.append(history.key, new Message(role, content));
+            }
+        }
+    }
+
+    /**
+     * Create a history for a conversation and start loading its stored messages
+     */
+    private ConversationHistory openHistory(String conversationKey) {
+        ConversationHistory history = new ConversationHistory(conversationKey, plugin.getConfig().getInt("npc.memory-size", 5));
+        // After a clear, wait for the old history's last turn so there is still one call per conversation
+        CompletableFuture<Void> previous = settling.getOrDefault(conversationKey, CompletableFuture.completedFuture(null));
+        history.loaded = previous
+                .thenCompose(v -> store.load(conversationKey))
+                .handle((messages, error) -> {
+                    if (error != null) {
+                        plugin.getLogger().warning("Failed to load conversation " + conversationKey + ": " + error.getMessage());
+                    } else {
+                        history.restore(messages);
+                    }
+                    return null;
+                });
+        return history;
+    }
+
+    /**
+     * Create the conversation store selected by storage.type
+     */
+    private ConversationStore createStore() {
+        String type = plugin.getConfig().getString("storage.type", "file");
+        if (!type.equalsIgnoreCase("file")) {
+            return new MemoryConversationStore();
+        }
+
+        // One exchange over the history's cap, so a turn it evicted but hasn't folded into
+        // the summary yet survives a restart
+        return new LogConversationStore(
+                plugin.getLogger(),
+                plugin.getDataFolder().toPath().resolve("conversations"),
+                plugin.getConfig().getInt("npc.memory-size", 5) * 2 + 2,
+                plugin.getConfig().getLong("storage.flush-interval-ms", 1000),
+                plugin.getConfig().getDouble("storage.compact-ratio", 3.0));
+    }
+
+    /**
+     * Get the number of messages that were merged into a queued turn instead of sent on their own
+     */
+    public long getMergedMessages() {
+        return mergedMessages.get();
+    }
+
+    /**
+     * Get the number of times old turns were folded into a conversation summary
+     */
+    public long getSummaries() {
+        return summaries.get();
+    }
+
+    /**
+     * Get the number of active conversations
+     */
+    public int getActiveConversations() {
+        return conversations.size();
+    }
+
+    /**
+     * Key a player-NPC conversation is held and stored under; starts with the player's UUID
+     * so all of a player's conversations can be found by prefix
+     */
+    static String conversationKey(UUID playerUUID, UUID npcUUID) {
+        return playerUUID + ":" + npcUUID;
     }
 
     /**
      * Clear conversation history for a player-NPC pair
      */
     public void clearConversation(UUID playerUUID, UUID npcUUID) {
-        String conversationKey = playerUUID + ":" + npcUUID;
-        conversations.remove(conversationKey);
+        String conversationKey = conversationKey(playerUUID, npcUUID);
+        close(conversationKey);
+        store.delete(conversationKey);
     }
 
     /**
      * Clear all conversations for a player
      */
     public void clearPlayerConversations(UUID playerUUID) {
-        conversations.keySet().removeIf(key -> key.startsWith(playerUUID.toString()));
+        for (String key : new ArrayList<>(conversations.keySet())) {
+            if (key.startsWith(playerUUID.toString())) {
+                close(key);
+            }
+        }
+        store.deleteIf(key -> key.startsWith(playerUUID.toString()));
     }
 
     /**
-     * Clean up conversations that haven't been used recently
+     * Drop a conversation from memory and stop it writing to the store
+     *
+     * A turn still in flight finishes and answers the player, but records nothing. Runs
+     * inside the map's compute so a concurrent reopen sees the settling future.
+     */
+    private void close(String conversationKey) {
+        conversations.computeIfPresent(conversationKey, (key, history) -> {
+            synchronized (history) {
+                history.closed = true;
+                if (history.inFlight) {
+                    CompletableFuture<Void> settled = new CompletableFuture<>();
+                    history.settled = settled;
+                    settling.put(key, settled);
+                    settled.whenComplete((v, error) -> settling.remove(key, settled));
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Drop conversations that haven't been used recently from memory (they stay in the store)
+     *
+     * One with a turn in flight is kept however old its last access, so a new chat line
+     * can't open a second history and a second call beside it. An evicted history is
+     * marked closed under its lock, like in {@link #close}, so a sender that looked it up
+     * just before opens a fresh one instead.
      */
     private void cleanupOldConversations() {
         int timeoutMinutes = plugin.getConfig().getInt("npc.memory-timeout", 30);
@@ -78,50 +439,132 @@ public class ConversationManager {
 
         long cutoffTime = System.currentTimeMillis() - (timeoutMinutes * 60 * 1000);
 
-        conversations.entrySet().removeIf(entry ->
-                entry.getValue().getLastAccessTime() < cutoffTime
-        );
+        for (String key : new ArrayList<>(conversations.keySet())) {
+            conversations.computeIfPresent(key, (k, history) -> {
+                synchronized (history) {
+                    if (history.inFlight || history.getLastAccessTime() >= cutoffTime) {
+                        return history;
+                    }
+                    history.closed = true;
+                }
+                return null;
+            });
+        }
     }
 
     /**
      * Save all conversations (called on plugin disable)
      */
     public void shutdown() {
-        // Could save to file here if needed
+        // Every message is already in the store - just make sure it reaches the disk
         conversations.clear();
+        store.close();
     }
 
     /**
      * Inner class to hold conversation history
      */
     private static class ConversationHistory {
-        private final int maxSize;
-        private final List<Message> messages = new ArrayList<>();
-        private long lastAccessTime;
+        private final String key;
+        private final MessageBuffer messages;
+        private volatile String summary;
+        private volatile long lastAccessTime;
+        private CompletableFuture<Void> loaded;
 
-        public ConversationHistory(int maxSize) {
-            this.maxSize = maxSize;
+        // Mailbox state, guarded by synchronizing on the history
+        private boolean inFlight;
+        private PendingTurn nextTurn;
+        // Set once the conversation is cleared; completed when its last turn is done
+        private boolean closed;
+        private CompletableFuture<Void> settled;
+        // Messages pushed out by the size cap, waiting to be folded into the summary
+        private final List<Message> evicted = new ArrayList<>();
+
+        public ConversationHistory(String key, int maxSize) {
+            this.key = key;
+            // Keep at most the last N exchanges (pairs of user+assistant) as a safety cap;
+            // the token budget usually folds older turns into the summary well before that
+            this.messages = new MessageBuffer(maxSize * 2);
             this.lastAccessTime = System.currentTimeMillis();
         }
 
         public void addMessage(String role, String content) {
-            messages.add(new Message(role, content));
+            Message dropped = messages.add(new Message(role, content));
+            if (dropped != null) {
+                synchronized (evicted) {
+                    evicted.add(dropped);
+                }
+            }
+            lastAccessTime = System.currentTimeMillis();
+        }
 
-            // Keep only last N messages (pairs of user+assistant)
-            while (messages.size() > maxSize * 2) {
-                messages.remove(0);
+        /**
+         * Take the messages evicted since the last call, oldest first
+         */
+        public List<Message> takeEvicted() {
+            synchronized (evicted) {
+                List<Message> taken = new ArrayList<>(evicted);
+                evicted.clear();
+                return taken;
             }
+        }
 
-            lastAccessTime = System.currentTimeMillis();
+        /**
+         * Put stored messages in front of anything added since the history was opened
+         */
+        public void restore(List<Message> stored) {
+            // Everything before the last summary record is covered by the summary
+            int start = 0;
+            for (int i = stored.size() - 1; i >= 0; i--) {
+                if (stored.get(i).getRole().equals(SUMMARY_ROLE)) {
+                    if (summary == null) {
+                        summary = stored.get(i).getContent();
+                    }
+                    start = i + 1;
+                    break;
+                }
+            }
+            List<Message> dropped = messages.prepend(stored.subList(start, stored.size()));
+            synchronized (evicted) {
+                evicted.addAll(0, dropped);
+            }
         }
 
+        /**
+         * Get an immutable snapshot of the history - cheap, nothing is copied
+         */
         public List<Message> getMessages() {
             lastAccessTime = System.currentTimeMillis();
-            return new ArrayList<>(messages);
+            return messages.snapshot();
         }
 
         public long getLastAccessTime() {
             return lastAccessTime;
         }
     }
+
+    /**
+     * A player turn waiting to be sent, possibly made of several chat lines
+     */
+    private static class PendingTurn {
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+        private final Consumer<String> onChunk;
+        private final StringBuilder message;
+        private String systemPrompt;
+
+        PendingTurn(String message, String systemPrompt, Consumer<String> onChunk) {
+            this.message = new StringBuilder(message);
+            this.systemPrompt = systemPrompt;
+            this.onChunk = onChunk;
+        }
+
+        void merge(String nextMessage, String latestSystemPrompt) {
+            message.append('\n').append(nextMessage);
+            systemPrompt = latestSystemPrompt;
+        }
+
+        String getMessage() {
+            return message.toString();
+        }
+    }
 }
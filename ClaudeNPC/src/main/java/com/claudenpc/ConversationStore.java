@@ -0,0 +1,52 @@
+package com.claudenpc;
+
+import com.claudenpc.ClaudeAPIClient.Message;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * Storage backend for conversation history
+ *
+ * Implementations must never block the caller on disk - all methods either return
+ * immediately or hand back a future.
+ */
+public interface ConversationStore {
+
+    /**
+     * Load the stored messages of a conversation, oldest first
+     * @param conversationKey Key of the player-NPC pair
+     * @return CompletableFuture with the messages (empty if none are stored)
+     */
+    CompletableFuture<List<Message>> load(String conversationKey);
+
+    /**
+     * Append a message to a conversation
+     */
+    void append(String conversationKey, Message message);
+
+    /**
+     * Replace a conversation's summary
+     *
+     * The summary covers every message appended before it, so those are dropped; it comes
+     * back first from {@link #load} as a message with the role "summary" and is never
+     * trimmed away like ordinary messages.
+     */
+    void saveSummary(String conversationKey, String summary);
+
+    /**
+     * Forget a conversation
+     */
+    void delete(String conversationKey);
+
+    /**
+     * Forget every conversation whose key matches
+     */
+    void deleteIf(Predicate<String> keyFilter);
+
+    /**
+     * Flush pending writes and release resources
+     */
+    void close();
+}
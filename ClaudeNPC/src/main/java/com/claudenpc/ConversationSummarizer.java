@@ -0,0 +1,104 @@
+package com.claudenpc;
+
+import com.claudenpc.ClaudeAPIClient.Message;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Compresses old conversation turns into a running summary
+ *
+ * Uses a cheap model (npc.context.summary-model) when one is configured, and a local
+ * extractive stand-in otherwise or whenever the model call fails.
+ */
+public class ConversationSummarizer {
+
+    private static final String SUMMARY_PROMPT =
+            "You summarize conversations between a Minecraft player and an NPC. "
+            + "Merge the previous summary with the new messages into a short paragraph. "
+            + "Keep names, places, promises, quests and facts the NPC should remember. Reply with the summary only.";
+
+    private final ClaudeNPC plugin;
+
+    public ConversationSummarizer(ClaudeNPC plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Estimate the tokens a piece of text will use (roughly four characters per token)
+     */
+    public static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    /**
+     * Estimate the tokens a message will use, including per-message overhead
+     */
+    public static int estimateTokens(Message message) {
+        return estimateTokens(message.getContent()) + 4;
+    }
+
+    /**
+     * Fold messages into the previous summary
+     *
+     * A model call counts against the global rate limit but not the player's, as the player
+     * didn't send it; if it is refused, the local summary is used.
+     * @param previousSummary Summary so far, or null
+     * @param folded Messages being dropped from the history, oldest first
+     * @param usageTag Key the model call's token usage is recorded under (the NPC's UUID)
+     * @return CompletableFuture with the new summary (never fails)
+     */
+    public CompletableFuture<String> summarize(String previousSummary, List<Message> folded, String usageTag) {
+        String model = plugin.getConfig().getString("npc.context.summary-model", "");
+        if (model == null || model.isEmpty()) {
+            return CompletableFuture.completedFuture(summarizeLocally(previousSummary, folded));
+        }
+
+        StringBuilder transcript = new StringBuilder();
+        if (previousSummary != null) {
+            transcript.append("Previous summary:\n").append(previousSummary).append("\n\n");
+        }
+        transcript.append("New messages:\n");
+        appendTranscript(transcript, folded, Integer.MAX_VALUE);
+
+        int maxTokens = plugin.getConfig().getInt("npc.context.summary-max-tokens", 300);
+        List<Message> request = Collections.singletonList(new Message("user", transcript.toString()));
+        return plugin.getRateLimiter().acquire(null)
+                .thenCompose(v -> plugin.getAPIClient().sendMessage(request,
+                        Collections.singletonList(SUMMARY_PROMPT), model, maxTokens, usageTag))
+                .exceptionally(throwable -> {
+                    plugin.getLogger().warning("Summary model failed, using local summary: " + throwable.getMessage());
+                    return summarizeLocally(previousSummary, folded);
+                });
+    }
+
+    /**
+     * Local stand-in: keep the gist of each message and drop the oldest text once over budget
+     */
+    private String summarizeLocally(String previousSummary, List<Message> folded) {
+        StringBuilder summary = new StringBuilder();
+        if (previousSummary != null) {
+            summary.append(previousSummary).append('\n');
+        }
+        appendTranscript(summary, folded, 160);
+
+        int maxChars = plugin.getConfig().getInt("npc.context.summary-max-tokens", 300) * 4;
+        if (summary.length() > maxChars) {
+            // The newest turns matter most - cut from the front at a line break
+            int cut = summary.indexOf("\n", summary.length() - maxChars);
+            summary.delete(0, cut >= 0 ? cut + 1 : summary.length() - maxChars);
+        }
+        return summary.toString().trim();
+    }
+
+    private static void appendTranscript(StringBuilder out, List<Message> messages, int maxCharsPerMessage) {
+        for (Message msg : messages) {
+            String content = msg.getContent().replace('\n', ' ').trim();
+            if (content.length() > maxCharsPerMessage) {
+                content = content.substring(0, maxCharsPerMessage) + "...";
+            }
+            out.append(msg.getRole().equals("user") ? "Player: " : "NPC: ").append(content).append('\n');
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.claudenpc;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * The plugin's shared HTTP client for Claude API calls
+ *
+ * OkHttp's defaults run 5 requests per host and 64 in all and silently queue the rest,
+ * so at peak most chats would wait inside the dispatcher. The limits, connection pool
+ * and protocols come from claude.http instead, the dispatcher's queue is exposed, and
+ * connections are opened at startup so the first chats skip the TCP and TLS handshakes.
+ * Over HTTPS, HTTP/2 is negotiated and requests are multiplexed over a few connections.
+ *
+ * Timeouts come from claude.timeouts: connect covers TCP and TLS, first-byte is the
+ * longest the API may stay silent (waiting for the reply to start, or mid-stream), and
+ * total caps a whole call including a streamed body. Time spent queued in the
+ * dispatcher isn't counted against any of them.
+ */
+public class HttpTransport {
+
+    private final Logger logger;
+    private final OkHttpClient client;
+
+    public HttpTransport(ClaudeNPC plugin) {
+        this.logger = plugin.getLogger();
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(Math.max(1, plugin.getConfig().getInt("claude.http.max-requests", 128)));
+        dispatcher.setMaxRequestsPerHost(Math.max(1, plugin.getConfig().getInt("claude.http.max-requests-per-host", 64)));
+
+        ConnectionPool connectionPool = new ConnectionPool(
+                Math.max(1, plugin.getConfig().getInt("claude.http.max-idle-connections", 8)),
+                plugin.getConfig().getLong("claude.http.keep-alive-seconds", 300), TimeUnit.SECONDS);
+
+        // HTTP/1.1 only for proxies that mishandle HTTP/2; plain http is always HTTP/1.1
+        List<Protocol> protocols = plugin.getConfig().getBoolean("claude.http.http2", true)
+                ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                : List.of(Protocol.HTTP_1_1);
+
+        // claude.timeout is the old single timeout; older configs keep it as the first-byte deadline
+        long firstByte = plugin.getConfig().getLong("claude.timeouts.first-byte",
+                plugin.getConfig().getLong("claude.timeout", 30));
+        this.client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(connectionPool)
+                .protocols(protocols)
+                .connectTimeout(plugin.getConfig().getLong("claude.timeouts.connect", 10), TimeUnit.SECONDS)
+                .readTimeout(firstByte, TimeUnit.SECONDS)
+                .writeTimeout(firstByte, TimeUnit.SECONDS)
+                .callTimeout(plugin.getConfig().getLong("claude.timeouts.total", 300), TimeUnit.SECONDS)
+                .build();
+    }
+
+    public OkHttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * Open connections to a URL's host in the background, ahead of the first real request
+     *
+     * Sends unauthenticated HEAD requests to the host's root; the response is discarded,
+     * only the pooled connection is kept.
+     * @param count Connections to open; over HTTP/2 requests share them, so 1-2 is plenty
+     */
+    public void prewarm(String url, int count) {
+        HttpUrl target = HttpUrl.parse(url);
+        if (target == null || count <= 0) {
+            return;
+        }
+        Request request = new Request.Builder().url(target.resolve("/")).head().build();
+
+        long start = System.nanoTime();
+        AtomicInteger remaining = new AtomicInteger(count);
+        AtomicReference<Protocol> protocol = new AtomicReference<>();
+        for (int i = 0; i < count; i++) {
+            client.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    logger.warning("Failed to pre-warm a connection to " + target.host() + ": " + e.getMessage());
+                    finished();
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    protocol.set(response.protocol());
+                    response.close();
+                    finished();
+                }
+
+                private void finished() {
+                    if (remaining.decrementAndGet() == 0 && protocol.get() != null) {
+                        logger.info("Connected to " + target.host() + " over " + protocol.get() + " in "
+                                + (System.nanoTime() - start) / 1_000_000 + " ms");
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Calls waiting for a dispatcher slot (claude.http.max-requests / max-requests-per-host)
+     */
+    public int getQueuedCalls() {
+        return client.dispatcher().queuedCallsCount();
+    }
+
+    public int getRunningCalls() {
+        return client.dispatcher().runningCallsCount();
+    }
+
+    public int getConnections() {
+        return client.connectionPool().connectionCount();
+    }
+
+    public int getIdleConnections() {
+        return client.connectionPool().idleConnectionCount();
+    }
+
+    public void close() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+}
@@ -0,0 +1,188 @@
+package com.claudenpc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Simulated conversations through the full chat pipeline, for /claudenpc loadtest
+ *
+ * Each conversation is a made-up player talking to one of a few made-up NPCs, sending
+ * its next message as soon as the previous reply arrives, as a player would. Everything
+ * past the chat listener runs for real: history, context fitting, the response cache,
+ * rate limiting, retries and the API client, streaming or not as configured. Only meant
+ * for a MockClaudeServer, so it refuses to run against the real API.
+ */
+public class LoadTest {
+
+    private static final int NPCS = 8;
+    private static final String PERSONALITY = "You are a load test NPC. Answer in a few sentences.";
+
+    private final ClaudeNPC plugin;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public LoadTest(ClaudeNPC plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Start a load test
+     * @param conversations Concurrent player-NPC conversations
+     * @param messages Messages each conversation sends, one after another
+     * @return Completes with the report once every conversation has finished
+     * @throws IllegalStateException If a test is already running or the client targets the real API
+     */
+    public CompletableFuture<Report> run(int conversations, int messages) {
+        ClaudeAPIClient apiClient = plugin.getAPIClient();
+        if (apiClient.getApiUrl().equals(ClaudeAPIClient.DEFAULT_API_URL)) {
+            throw new IllegalStateException("claude.api-url points at the real API; start a MockClaudeServer "
+                    + "and set claude.api-url to it first");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A load test is already running");
+        }
+
+        ConversationManager conversationManager = plugin.getConversationManager();
+        Consumer<String> onChunk = plugin.getConfigManager().isStreamingEnabled() ? chunk -> { } : null;
+        UUID[] npcs = new UUID[NPCS];
+        for (int i = 0; i < NPCS; i++) {
+            npcs[i] = UUID.randomUUID();
+        }
+
+        Metrics.Histogram latency = new Metrics.Histogram(1e-3);
+        AtomicInteger failures = new AtomicInteger();
+        AtomicReference<String> firstError = new AtomicReference<>();
+        List<UUID> players = new ArrayList<>(conversations);
+        List<CompletableFuture<Void>> finished = new ArrayList<>(conversations);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < conversations; i++) {
+            UUID player = UUID.randomUUID();
+            players.add(player);
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            finished.add(done);
+            converse(conversationManager, player, npcs[i % NPCS], 0, messages, onChunk,
+                    latency, failures, firstError, done);
+        }
+
+        return CompletableFuture.allOf(finished.toArray(new CompletableFuture[0])).thenApply(v -> {
+            long elapsedNanos = System.nanoTime() - start;
+            // The made-up players' histories aren't worth keeping
+            players.forEach(conversationManager::clearPlayerConversations);
+            running.set(false);
+            return new Report(conversations, latency.snapshot(), failures.get(), firstError.get(), elapsedNanos);
+        });
+    }
+
+    /**
+     * Send one message, then the next once the reply is in
+     */
+    private void converse(ConversationManager conversationManager, UUID player, UUID npc, int sent, int messages,
+                          Consumer<String> onChunk, Metrics.Histogram latency, AtomicInteger failures,
+                          AtomicReference<String> firstError, CompletableFuture<Void> done) {
+        if (sent == messages) {
+            done.complete(null);
+            return;
+        }
+
+        // Distinct text per message so the response cache doesn't answer for the API
+        String message = "Message " + (sent + 1) + " from " + player + ": what lies north of the village?";
+        long start = System.nanoTime();
+        CompletableFuture<String> reply;
+        try {
+            reply = conversationManager.sendMessage(player, npc, message, PERSONALITY, onChunk);
+        } catch (RuntimeException e) {
+            reply = CompletableFuture.failedFuture(e);
+        }
+
+        reply.whenComplete((response, error) -> {
+            if (error == null) {
+                latency.recordSince(start);
+            } else {
+                failures.incrementAndGet();
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                firstError.compareAndSet(null, cause.getClass().getSimpleName() + ": " + cause.getMessage());
+            }
+            converse(conversationManager, player, npc, sent + 1, messages, onChunk, latency, failures,
+                    firstError, done);
+        });
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Outcome of a load test; latencies are in milliseconds
+     */
+    public static class Report {
+        private final int conversations;
+        private final Metrics.Histogram.Snapshot latency;
+        private final int failures;
+        private final String firstError;
+        private final long elapsedNanos;
+
+        Report(int conversations, Metrics.Histogram.Snapshot latency, int failures, String firstError,
+               long elapsedNanos) {
+            this.conversations = conversations;
+            this.latency = latency;
+            this.failures = failures;
+            this.firstError = firstError;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getSucceeded() {
+            return latency.getCount();
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+
+        /**
+         * First failure's exception and message, or null if nothing failed
+         */
+        public String getFirstError() {
+            return firstError;
+        }
+
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        /**
+         * Replies per second
+         */
+        public double getThroughput() {
+            return getSucceeded() / Math.max(getElapsedSeconds(), 1e-9);
+        }
+
+        public double getLatencyMillis(double quantile) {
+            return latency.getQuantile(quantile);
+        }
+
+        /**
+         * Lines for the command sender
+         */
+        public List<String> describe() {
+            List<String> lines = new ArrayList<>();
+            lines.add(String.format(Locale.ROOT, "§7%d conversations: §f%d §7replies, §f%d §7failed in §f%.1fs",
+                    conversations, getSucceeded(), failures, getElapsedSeconds()));
+            lines.add(String.format(Locale.ROOT, "§7Throughput: §f%.1f §7replies/s", getThroughput()));
+            lines.add(String.format(Locale.ROOT, "§7Latency: p50 §f%.0f ms§7, p99 §f%.0f ms§7, max §f%.0f ms",
+                    latency.getQuantile(0.5), latency.getQuantile(0.99), latency.getMax()));
+            if (firstError != null) {
+                lines.add("§7First failure: §c" + firstError);
+            }
+            return lines;
+        }
+    }
+}
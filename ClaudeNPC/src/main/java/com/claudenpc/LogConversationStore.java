@@ -0,0 +1,470 @@
+package com.claudenpc;
+
+import com.claudenpc.ClaudeAPIClient.Message;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, log-structured conversation store
+ *
+ * Every message is appended to a single log file as a checksummed record. On startup the
+ * log is scanned once (in the background) to index record offsets per conversation;
+ * message text is only read back when a conversation is first accessed. Writes are
+ * flushed and fsynced in batches, and the log is rewritten without dead records once
+ * they outnumber the live ones by the configured ratio.
+ *
+ * All file access happens on a single store thread, so callers never block on disk.
+ *
+ * Each conversation keeps its newest messages plus at most one summary record, which
+ * replaces everything appended before it and is never trimmed.
+ *
+ * Record layout: [int payload length][int CRC32 of payload][payload]
+ * Payload: [byte type][string key] and, for appends and summaries, [string role][string content],
+ * where strings are an int byte length followed by UTF-8 bytes.
+ */
+public class LogConversationStore implements ConversationStore {
+
+    private static final byte TYPE_APPEND = 1;
+    private static final byte TYPE_DELETE = 2;
+    private static final byte TYPE_SUMMARY = 3;
+    private static final String SUMMARY_ROLE = "summary";
+    private static final int HEADER_SIZE = 8;
+    private static final int MIN_COMPACT_RECORDS = 1000;
+
+    private final Logger logger;
+    private final Path logFile;
+    private final int maxMessages;
+    private final double compactRatio;
+    private final ScheduledExecutorService io;
+
+    // Only touched on the store thread
+    private final Map<String, ArrayDeque<Long>> index = new HashMap<>();
+    private final Map<String, Long> summaryIndex = new HashMap<>();
+    private FileChannel channel;
+    private long endOffset;
+    private long totalRecords;
+    private long liveRecords;
+    private boolean dirty;
+
+    /**
+     * @param directory Folder the log lives in
+     * @param maxMessages Messages kept per conversation; older ones are dropped at compaction
+     * @param flushIntervalMillis How often buffered writes are forced to disk
+     * @param compactRatio Compact once total records exceed live records by this factor
+     */
+    public LogConversationStore(Logger logger, Path directory, int maxMessages, long flushIntervalMillis, double compactRatio) {
+        this.logger = logger;
+        this.logFile = directory.resolve("conversations.log");
+        this.maxMessages = maxMessages;
+        this.compactRatio = Math.max(1.5, compactRatio);
+
+        this.io = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ClaudeNPC-Store");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        io.execute(() -> {
+            try {
+                Files.createDirectories(directory);
+                open();
+                logger.info("Conversation store ready: " + keys().size() + " conversations, " + liveRecords + " records");
+            } catch (IOException e) {
+                logger.severe("Failed to open conversation store: " + e.getMessage());
+            }
+        });
+        io.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public CompletableFuture<List<Message>> load(String conversationKey) {
+        return CompletableFuture.supplyAsync(() -> {
+            ArrayDeque<Long> offsets = index.getOrDefault(conversationKey, new ArrayDeque<>());
+            Long summaryOffset = summaryIndex.get(conversationKey);
+            if (channel == null) {
+                return Collections.emptyList();
+            }
+
+            List<Long> toRead = new ArrayList<>(offsets.size() + 1);
+            if (summaryOffset != null) {
+                toRead.add(summaryOffset);
+            }
+            toRead.addAll(offsets);
+
+            List<Message> messages = new ArrayList<>(toRead.size());
+            for (long offset : toRead) {
+                try {
+                    Record record = readRecord(channel, offset);
+                    if (record != null && record.type != TYPE_DELETE) {
+                        messages.add(new Message(record.role, record.content));
+                    }
+                } catch (IOException e) {
+                    logger.warning("Failed to read conversation record: " + e.getMessage());
+                }
+            }
+            return messages;
+        }, io);
+    }
+
+    @Override
+    public void append(String conversationKey, Message message) {
+        submit(() -> {
+            long offset = write(encode(TYPE_APPEND, conversationKey, message.getRole(), message.getContent()));
+            indexAppend(conversationKey, offset);
+            maybeCompact();
+        });
+    }
+
+    @Override
+    public void saveSummary(String conversationKey, String summary) {
+        submit(() -> {
+            long offset = write(encode(TYPE_SUMMARY, conversationKey, SUMMARY_ROLE, summary));
+            indexSummary(conversationKey, offset);
+            maybeCompact();
+        });
+    }
+
+    private void indexAppend(String conversationKey, long offset) {
+        ArrayDeque<Long> offsets = index.computeIfAbsent(conversationKey, k -> new ArrayDeque<>());
+        offsets.addLast(offset);
+        liveRecords++;
+
+        // Older messages are dead weight now - compaction will drop them
+        while (offsets.size() > maxMessages) {
+            offsets.pollFirst();
+            liveRecords--;
+        }
+    }
+
+    /**
+     * Point a conversation at its new summary; the messages before it are covered by it
+     */
+    private void indexSummary(String conversationKey, long offset) {
+        ArrayDeque<Long> covered = index.remove(conversationKey);
+        if (covered != null) {
+            liveRecords -= covered.size();
+        }
+        if (summaryIndex.put(conversationKey, offset) == null) {
+            liveRecords++;
+        }
+    }
+
+    /**
+     * Every conversation with messages or a summary
+     */
+    private Set<String> keys() {
+        Set<String> keys = new HashSet<>(index.keySet());
+        keys.addAll(summaryIndex.keySet());
+        return keys;
+    }
+
+    @Override
+    public void delete(String conversationKey) {
+        submit(() -> deleteOnStoreThread(conversationKey));
+    }
+
+    @Override
+    public void deleteIf(Predicate<String> keyFilter) {
+        submit(() -> {
+            for (String key : keys()) {
+                if (keyFilter.test(key)) {
+                    deleteOnStoreThread(key);
+                }
+            }
+        });
+    }
+
+    private void deleteOnStoreThread(String conversationKey) throws IOException {
+        ArrayDeque<Long> offsets = index.remove(conversationKey);
+        Long summaryOffset = summaryIndex.remove(conversationKey);
+        if (offsets != null || summaryOffset != null) {
+            liveRecords -= (offsets != null ? offsets.size() : 0) + (summaryOffset != null ? 1 : 0);
+            write(encode(TYPE_DELETE, conversationKey, null, null));
+            maybeCompact();
+        }
+    }
+
+    @Override
+    public void close() {
+        io.execute(this::flush);
+        io.shutdown();
+        try {
+            if (!io.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warning("Conversation store did not finish writing in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            logger.warning("Failed to close conversation store: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Open the log and rebuild the index, truncating any torn write left by a crash
+     */
+    private void open() throws IOException {
+        channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long offset = 0;
+        long size = channel.size();
+        while (offset < size) {
+            Record record = readRecord(channel, offset);
+            if (record == null) {
+                logger.warning("Conversation log is damaged at byte " + offset + ", discarding the rest");
+                channel.truncate(offset);
+                break;
+            }
+
+            totalRecords++;
+            if (record.type == TYPE_APPEND) {
+                indexAppend(record.key, offset);
+            } else if (record.type == TYPE_SUMMARY) {
+                indexSummary(record.key, offset);
+            } else {
+                ArrayDeque<Long> removed = index.remove(record.key);
+                if (removed != null) {
+                    liveRecords -= removed.size();
+                }
+                if (summaryIndex.remove(record.key) != null) {
+                    liveRecords--;
+                }
+            }
+            offset += HEADER_SIZE + record.payloadLength;
+        }
+        endOffset = offset;
+    }
+
+    private long write(ByteBuffer record) throws IOException {
+        if (channel == null) {
+            throw new IOException("Conversation store is not open");
+        }
+
+        long offset = endOffset;
+        while (record.hasRemaining()) {
+            endOffset += channel.write(record, endOffset);
+        }
+        totalRecords++;
+        dirty = true;
+        return offset;
+    }
+
+    /**
+     * Force buffered writes to disk - batched so each message doesn't pay for an fsync
+     */
+    private void flush() {
+        if (!dirty || channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+            dirty = false;
+        } catch (IOException e) {
+            logger.warning("Failed to flush conversation store: " + e.getMessage());
+        }
+    }
+
+    private void maybeCompact() {
+        if (totalRecords < MIN_COMPACT_RECORDS || totalRecords < liveRecords * compactRatio) {
+            return;
+        }
+
+        try {
+            compact();
+        } catch (IOException e) {
+            logger.warning("Failed to compact conversation store: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rewrite the log with only live records, then swap it in atomically
+     */
+    private void compact() throws IOException {
+        Path compacted = logFile.resolveSibling(logFile.getFileName() + ".compact");
+        Map<String, ArrayDeque<Long>> newIndex = new HashMap<>();
+        Map<String, Long> newSummaryIndex = new HashMap<>();
+        long newEnd = 0;
+
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (String key : keys()) {
+                // The summary goes first, so reading the new log back doesn't drop the messages after it
+                Long summaryOffset = summaryIndex.get(key);
+                Record summary = summaryOffset != null ? readRecord(channel, summaryOffset) : null;
+                if (summary != null) {
+                    newSummaryIndex.put(key, newEnd);
+                    newEnd = copy(out, encode(TYPE_SUMMARY, key, summary.role, summary.content), newEnd);
+                }
+
+                ArrayDeque<Long> newOffsets = new ArrayDeque<>();
+                for (long offset : index.getOrDefault(key, new ArrayDeque<>())) {
+                    Record record = readRecord(channel, offset);
+                    if (record == null) {
+                        continue;
+                    }
+                    newOffsets.addLast(newEnd);
+                    newEnd = copy(out, encode(TYPE_APPEND, record.key, record.role, record.content), newEnd);
+                }
+                if (!newOffsets.isEmpty()) {
+                    newIndex.put(key, newOffsets);
+                }
+            }
+            out.force(true);
+        }
+
+        channel.close();
+        Files.move(compacted, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        index.clear();
+        index.putAll(newIndex);
+        summaryIndex.clear();
+        summaryIndex.putAll(newSummaryIndex);
+        liveRecords = newSummaryIndex.size();
+        for (ArrayDeque<Long> offsets : newIndex.values()) {
+            liveRecords += offsets.size();
+        }
+        totalRecords = liveRecords;
+        endOffset = newEnd;
+        dirty = false;
+    }
+
+    private static long copy(FileChannel out, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            offset += out.write(buffer, offset);
+        }
+        return offset;
+    }
+
+    private void submit(IOTask task) {
+        try {
+            io.execute(() -> {
+                try {
+                    task.run();
+                } catch (IOException e) {
+                    logger.warning("Conversation store write failed: " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warning("Conversation store is closed, dropping write");
+        }
+    }
+
+    private static ByteBuffer encode(byte type, String key, String role, String content) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] roleBytes = role != null ? role.getBytes(StandardCharsets.UTF_8) : null;
+        byte[] contentBytes = content != null ? content.getBytes(StandardCharsets.UTF_8) : null;
+
+        int payloadLength = 1 + 4 + keyBytes.length;
+        if (type != TYPE_DELETE) {
+            payloadLength += 4 + roleBytes.length + 4 + contentBytes.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payloadLength);
+        buffer.putInt(payloadLength);
+        buffer.putInt(0); // CRC placeholder
+        buffer.put(type);
+        buffer.putInt(keyBytes.length).put(keyBytes);
+        if (type != TYPE_DELETE) {
+            buffer.putInt(roleBytes.length).put(roleBytes);
+            buffer.putInt(contentBytes.length).put(contentBytes);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_SIZE, payloadLength);
+        buffer.putInt(4, (int) crc.getValue());
+
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Read and verify the record at an offset
+     * @return The record, or null if it is truncated or fails its checksum
+     */
+    private static Record readRecord(FileChannel channel, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (!readFully(channel, header, offset)) {
+            return null;
+        }
+        header.flip();
+        int payloadLength = header.getInt();
+        int expectedCrc = header.getInt();
+        if (payloadLength <= 0 || offset + HEADER_SIZE + payloadLength > channel.size()) {
+            return null;
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+        if (!readFully(channel, payload, offset + HEADER_SIZE)) {
+            return null;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload.array(), 0, payloadLength);
+        if ((int) crc.getValue() != expectedCrc) {
+            return null;
+        }
+
+        payload.flip();
+        byte type = payload.get();
+        String key = readString(payload);
+        if (type != TYPE_DELETE) {
+            return new Record(type, key, readString(payload), readString(payload), payloadLength);
+        }
+        return new Record(type, key, null, null, payloadLength);
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset + buffer.position());
+            if (read < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface IOTask {
+        void run() throws IOException;
+    }
+
+    private static class Record {
+        private final byte type;
+        private final String key;
+        private final String role;
+        private final String content;
+        private final int payloadLength;
+
+        Record(byte type, String key, String role, String content, int payloadLength) {
+            this.type = type;
+            this.key = key;
+            this.role = role;
+            this.content = content;
+            this.payloadLength = payloadLength;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.claudenpc;
+
+import com.claudenpc.ClaudeAPIClient.Message;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * Conversation store that keeps nothing - history lives only in ConversationManager's memory
+ * and is wiped on restart
+ */
+public class MemoryConversationStore implements ConversationStore {
+
+    @Override
+    public CompletableFuture<List<Message>> load(String conversationKey) {
+        return CompletableFuture.completedFuture(Collections.emptyList());
+    }
+
+    @Override
+    public void append(String conversationKey, Message message) {
+    }
+
+    @Override
+    public void saveSummary(String conversationKey, String summary) {
+    }
+
+    @Override
+    public void delete(String conversationKey) {
+    }
+
+    @Override
+    public void deleteIf(Predicate<String> keyFilter) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,137 @@
+package com.claudenpc;
+
+import com.claudenpc.ClaudeAPIClient.Message;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Fixed-capacity message buffer with O(1) append/evict and copy-free snapshots
+ *
+ * A classic ring overwrites the oldest slot in place, which would corrupt any snapshot
+ * still reading it. Instead, the live window slides forward over a backing array twice
+ * the capacity; slots are written once and never overwritten. When the window reaches
+ * the end, the last capacity messages move to a fresh array - one copy per capacity
+ * appends, so appends stay amortized O(1).
+ *
+ * Writers are serialized by synchronizing on the buffer. Readers take a snapshot from a
+ * single volatile field without locking, and the snapshot never changes afterwards.
+ */
+public class MessageBuffer {
+
+    private final int capacity;
+    private volatile Snapshot snapshot;
+
+    public MessageBuffer(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.snapshot = new Snapshot(new Message[this.capacity * 2], 0, 0);
+    }
+
+    /**
+     * Append a message, evicting the oldest once the buffer is full
+     * @return The evicted message, or null if there was room
+     */
+    public synchronized Message add(Message message) {
+        Snapshot current = snapshot;
+        Message[] slots = current.slots;
+        int start = current.start;
+        int end = current.end;
+
+        if (end == slots.length) {
+            // Out of room - carry the newest messages over to a fresh array
+            Message[] fresh = new Message[capacity * 2];
+            int keep = Math.min(end - start, capacity - 1);
+            System.arraycopy(slots, end - keep, fresh, 0, keep);
+            slots = fresh;
+            start = 0;
+            end = keep;
+        }
+
+        slots[end++] = message;
+        Message evicted = null;
+        if (end - start > capacity) {
+            evicted = slots[start++];
+        }
+
+        // Publishing the new window makes the slot write visible to readers
+        snapshot = new Snapshot(slots, start, end);
+        return evicted;
+    }
+
+    /**
+     * Put older messages in front of the current ones, keeping the newest that fit
+     * @return The oldest messages that didn't fit, oldest first
+     */
+    public synchronized List<Message> prepend(List<Message> older) {
+        Snapshot current = snapshot;
+        Message[] fresh = new Message[capacity * 2];
+        int total = older.size() + current.size();
+        int skip = Math.max(0, total - capacity);
+
+        List<Message> dropped = new ArrayList<>(skip);
+        for (int i = 0; i < skip; i++) {
+            dropped.add(i < older.size() ? older.get(i) : current.get(i - older.size()));
+        }
+
+        int end = 0;
+        for (int i = skip; i < total; i++) {
+            fresh[end++] = i < older.size() ? older.get(i) : current.get(i - older.size());
+        }
+        snapshot = new Snapshot(fresh, 0, end);
+        return dropped;
+    }
+
+    /**
+     * Drop the oldest messages
+     */
+    public synchronized void dropOldest(int count) {
+        Snapshot current = snapshot;
+        int drop = Math.min(count, current.size());
+        snapshot = new Snapshot(current.slots, current.start + drop, current.end);
+    }
+
+    /**
+     * Get an immutable view of the buffered messages, oldest first
+     */
+    public List<Message> snapshot() {
+        return snapshot;
+    }
+
+    public int size() {
+        return snapshot.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Read-only window over slots that are never written again
+     */
+    private static final class Snapshot extends AbstractList<Message> implements RandomAccess {
+        private final Message[] slots;
+        private final int start;
+        private final int end;
+
+        Snapshot(Message[] slots, int start, int end) {
+            this.slots = slots;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Message get(int index) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + (end - start));
+            }
+            return slots[start + index];
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+    }
+}
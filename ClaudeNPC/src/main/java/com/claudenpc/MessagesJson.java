@@ -0,0 +1,368 @@
+package com.claudenpc;
+
+import com.claudenpc.ClaudeAPIClient.Message;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Streaming JSON for the messages endpoint
+ *
+ * Requests are written field by field straight into the HTTP sink, and replies are read
+ * with a pull parser that keeps only the text and token usage and skips everything else.
+ * No JSON tree or whole-request string is built, so what a request allocates is mostly
+ * the message text the history already holds.
+ */
+public final class MessagesJson {
+
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    // Escapes for the control characters JSON strings can't contain
+    private static final String[] CONTROL_ESCAPES = new String[0x20];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            CONTROL_ESCAPES[c] = String.format("\\u%04x", c);
+        }
+        CONTROL_ESCAPES['\b'] = "\\b";
+        CONTROL_ESCAPES['\t'] = "\\t";
+        CONTROL_ESCAPES['\n'] = "\\n";
+        CONTROL_ESCAPES['\f'] = "\\f";
+        CONTROL_ESCAPES['\r'] = "\\r";
+    }
+
+    private MessagesJson() {
+    }
+
+    /**
+     * A request body that serializes when OkHttp writes it, and again for each retry
+     * @param promptCaching Put cache breakpoints on the system blocks and the end of the repeated history
+     */
+    static RequestBody requestBody(List<Message> messages, List<String> systemBlocks, String model, int maxTokens,
+                                   boolean stream, boolean promptCaching) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return JSON;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                writeRequest(sink, messages, systemBlocks, model, maxTokens, stream, promptCaching);
+            }
+        };
+    }
+
+    /**
+     * Write the messages request JSON
+     */
+    static void writeRequest(BufferedSink sink, List<Message> messages, List<String> systemBlocks, String model,
+                             int maxTokens, boolean stream, boolean promptCaching) throws IOException {
+        sink.writeUtf8("{\"model\":");
+        writeString(sink, model);
+        sink.writeUtf8(",\"max_tokens\":").writeDecimalLong(maxTokens);
+        if (stream) {
+            sink.writeUtf8(",\"stream\":true");
+        }
+
+        // System prompt as blocks, so the personality (and summary) can be cached
+        sink.writeUtf8(",\"system\":[");
+        boolean first = true;
+        for (String text : systemBlocks) {
+            if (text != null && !text.isEmpty()) {
+                if (!first) {
+                    sink.writeByte(',');
+                }
+                writeTextBlock(sink, text, promptCaching);
+                first = false;
+            }
+        }
+
+        sink.writeUtf8("],\"messages\":[");
+        for (int i = 0; i < messages.size(); i++) {
+            Message msg = messages.get(i);
+            if (i > 0) {
+                sink.writeByte(',');
+            }
+            sink.writeUtf8("{\"role\":");
+            writeString(sink, msg.getRole());
+            sink.writeUtf8(",\"content\":");
+
+            // Everything up to the previous reply is the same next turn - mark the end of that prefix
+            if (promptCaching && i == messages.size() - 2) {
+                sink.writeByte('[');
+                writeTextBlock(sink, msg.getContent(), true);
+                sink.writeByte(']');
+            } else {
+                writeString(sink, msg.getContent());
+            }
+            sink.writeByte('}');
+        }
+        sink.writeUtf8("]}");
+    }
+
+    private static void writeTextBlock(BufferedSink sink, String text, boolean cacheBreakpoint) throws IOException {
+        sink.writeUtf8("{\"type\":\"text\",\"text\":");
+        writeString(sink, text);
+        if (cacheBreakpoint) {
+            sink.writeUtf8(",\"cache_control\":{\"type\":\"ephemeral\"}");
+        }
+        sink.writeByte('}');
+    }
+
+    /**
+     * Write a JSON string, copying unescaped runs straight from the source string
+     */
+    static void writeString(BufferedSink sink, String value) throws IOException {
+        if (value == null) {
+            sink.writeUtf8("null");
+            return;
+        }
+        sink.writeByte('"');
+        int run = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String escape;
+            if (c == '"') {
+                escape = "\\\"";
+            } else if (c == '\\') {
+                escape = "\\\\";
+            } else if (c < 0x20) {
+                escape = CONTROL_ESCAPES[c];
+            } else {
+                continue;
+            }
+            if (run < i) {
+                sink.writeUtf8(value, run, i);
+            }
+            sink.writeUtf8(escape);
+            run = i + 1;
+        }
+        if (run < length) {
+            sink.writeUtf8(value, run, length);
+        }
+        sink.writeByte('"');
+    }
+
+    /**
+     * Read the reply text and usage from a non-streaming response
+     * @param usageTracker Receives the response's token usage
+     * @return The first content block's text
+     * @throws IOException If the response has no text content
+     */
+    static String readResponse(Reader body, UsageTracker usageTracker, String usageTag) throws IOException {
+        String text = null;
+        Usage usage = new Usage();
+        JsonReader reader = new JsonReader(body);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("usage")) {
+                readUsage(reader, usage, true);
+            } else if (name.equals("content") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (text == null) {
+                        text = readBlockText(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        usage.record(usageTracker, usageTag);
+
+        if (text == null) {
+            throw new IOException("No content in response");
+        }
+        return text;
+    }
+
+    /**
+     * The text field of a content block, or null if it has none
+     */
+    private static String readBlockText(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        String text = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("text") && reader.peek() == JsonToken.STRING) {
+                text = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return text;
+    }
+
+    /**
+     * Token counts of one call, recorded once it has been read
+     */
+    static final class Usage {
+        private boolean seen;
+        private long input;
+        private long output;
+        private long cacheRead;
+        private long cacheWrite;
+
+        /**
+         * Add the counts to the tracker, if the reply carried any
+         */
+        void record(UsageTracker usageTracker, String usageTag) {
+            if (seen) {
+                usageTracker.record(usageTag, input, output, cacheRead, cacheWrite);
+            }
+        }
+    }
+
+    /**
+     * Read a usage object
+     * @param withInput Take the input and cache counts too; false for message_delta, where only output is new
+     */
+    private static void readUsage(JsonReader reader, Usage usage, boolean withInput) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        usage.seen = true;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() != JsonToken.NUMBER) {
+                reader.skipValue();
+                continue;
+            }
+            // Counts are cumulative, so the latest value replaces the earlier one
+            if (name.equals("output_tokens")) {
+                usage.output = reader.nextLong();
+            } else if (!withInput) {
+                reader.skipValue();
+            } else {
+                switch (name) {
+                    case "input_tokens":
+                        usage.input = reader.nextLong();
+                        break;
+                    case "cache_read_input_tokens":
+                        usage.cacheRead = reader.nextLong();
+                        break;
+                    case "cache_creation_input_tokens":
+                        usage.cacheWrite = reader.nextLong();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * The fields of a stream event the client acts on
+     *
+     * One instance is reused for every event of a stream, and collects the stream's usage.
+     */
+    static final class StreamEvent {
+        String type;
+        // Delta text of a content_block_delta
+        String text;
+        // Error type of an error event
+        String errorType;
+        // Usage so far; record it once the stream ends
+        final Usage usage = new Usage();
+    }
+
+    /**
+     * Read one stream event's JSON, folding any usage it carries into the event's usage
+     *
+     * Usage arrives in message_start (input and cache counts, under message) and
+     * message_delta (the cumulative output count, at the top level). Input and cache
+     * counts are only taken from message_start, as message_delta may repeat them.
+     */
+    static void readEvent(Reader data, StreamEvent event) throws IOException {
+        event.type = "";
+        event.text = null;
+        event.errorType = null;
+
+        JsonReader reader = new JsonReader(data);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "type":
+                    event.type = reader.nextString();
+                    break;
+                case "delta":
+                    event.text = readField(reader, "text");
+                    break;
+                case "error":
+                    event.errorType = readField(reader, "type");
+                    break;
+                case "usage":
+                    readUsage(reader, event.usage, false);
+                    break;
+                case "message":
+                    readMessageUsage(reader, event.usage);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * A string field of an object, skipping the rest; null if it's absent
+     */
+    private static String readField(JsonReader reader, String field) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        String value = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals(field) && reader.peek() == JsonToken.STRING) {
+                value = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return value;
+    }
+
+    private static void readMessageUsage(JsonReader reader, Usage usage) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("usage")) {
+                readUsage(reader, usage, true);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+}
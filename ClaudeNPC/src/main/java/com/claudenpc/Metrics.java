@@ -0,0 +1,337 @@
+package com.claudenpc;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of counters, gauges and latency histograms
+ *
+ * Recording never takes a lock: counters are LongAdders and histograms are arrays of
+ * atomic bucket counts, so hot paths (every API call, every tick) can record freely.
+ * Counts the plugin already keeps elsewhere (rate limiter, response cache, worker pool)
+ * are registered as functions and read only when the metrics are rendered.
+ *
+ * Metrics are named and rendered in the Prometheus text format; see {@link MetricsExporter}.
+ */
+public class Metrics {
+
+    public enum Type {
+        COUNTER, GAUGE, SUMMARY
+    }
+
+    // Families sorted by name so the export is stable
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * Get or create a counter
+     * @param labels Alternating label names and values, e.g. "outcome", "success"
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, Type.COUNTER).series.computeIfAbsent(labelString(labels), k -> new Counter());
+    }
+
+    /**
+     * Get or create a histogram
+     * @param scale Multiplier from recorded values to exported units, e.g. 1e-6 to record
+     *              microseconds and export seconds
+     */
+    public Histogram histogram(String name, String help, double scale, String... labels) {
+        return (Histogram) family(name, help, Type.SUMMARY).series.computeIfAbsent(labelString(labels),
+                k -> new Histogram(scale));
+    }
+
+    /**
+     * Register a counter whose value is read from elsewhere when rendered
+     */
+    public void counterFunction(String name, String help, LongSupplier value, String... labels) {
+        family(name, help, Type.COUNTER).series.put(labelString(labels), new FunctionMetric(value));
+    }
+
+    /**
+     * Register a gauge whose value is read when rendered
+     */
+    public void gauge(String name, String help, LongSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).series.put(labelString(labels), new FunctionMetric(value));
+    }
+
+    /**
+     * Remove a metric and all its series, e.g. when the component it reads from goes away
+     */
+    public void remove(String name) {
+        families.remove(name);
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, k -> new Family(help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException(name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    private static String labelString(String[] labels) {
+        if (labels.length == 0) {
+            return "";
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        StringBuilder result = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                result.append(',');
+            }
+            String value = labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+            result.append(labels[i]).append("=\"").append(value).append('"');
+        }
+        return result.append('}').toString();
+    }
+
+    /**
+     * Write every metric in the Prometheus text exposition format (version 0.0.4)
+     */
+    public void writePrometheus(Writer out) throws IOException {
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            out.write("# HELP " + name + " " + family.help + "\n");
+            out.write("# TYPE " + name + " " + family.type.name().toLowerCase(Locale.ROOT) + "\n");
+
+            for (Map.Entry<String, Object> series : family.series.entrySet()) {
+                String labels = series.getKey();
+                Object metric = series.getValue();
+                if (metric instanceof Histogram) {
+                    Histogram.Snapshot snapshot = ((Histogram) metric).snapshot();
+                    for (double quantile : new double[] {0.5, 0.9, 0.99}) {
+                        out.write(name + withLabel(labels, "quantile", Double.toString(quantile)) + " "
+                                + format(snapshot.getQuantile(quantile)) + "\n");
+                    }
+                    out.write(name + "_sum" + labels + " " + format(snapshot.getSum()) + "\n");
+                    out.write(name + "_count" + labels + " " + snapshot.getCount() + "\n");
+                } else {
+                    out.write(name + labels + " " + ((LongSupplier) metric).getAsLong() + "\n");
+                }
+            }
+        }
+    }
+
+    private static String withLabel(String labels, String name, String value) {
+        String label = name + "=\"" + value + "\"";
+        return labels.isEmpty() ? "{" + label + "}" : labels.substring(0, labels.length() - 1) + "," + label + "}";
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    /**
+     * One line per series for /claudenpc metrics
+     */
+    public List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            String name = entry.getKey().replaceFirst("^claudenpc_", "");
+            for (Map.Entry<String, Object> series : entry.getValue().series.entrySet()) {
+                String label = name + series.getKey().replace("\"", "");
+                Object metric = series.getValue();
+                if (metric instanceof Histogram) {
+                    Histogram.Snapshot snapshot = ((Histogram) metric).snapshot();
+                    if (snapshot.getCount() == 0) {
+                        continue;
+                    }
+                    lines.add(String.format(Locale.ROOT, "§e%s§7: p50 §f%s§7, p90 §f%s§7, p99 §f%s§7, max §f%s §7(%d)",
+                            label, brief(snapshot.getQuantile(0.5)), brief(snapshot.getQuantile(0.9)),
+                            brief(snapshot.getQuantile(0.99)), brief(snapshot.getMax()), snapshot.getCount()));
+                } else {
+                    lines.add("§e" + label + "§7: §f" + ((LongSupplier) metric).getAsLong());
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static String brief(double value) {
+        return value >= 100 || value == Math.rint(value) ? String.valueOf(Math.round(value))
+                : String.format(Locale.ROOT, "%.3g", value);
+    }
+
+    private static class Family {
+        private final String help;
+        private final Type type;
+        // Keyed by label string; values are Counter, Histogram or FunctionMetric
+        private final Map<String, Object> series = new ConcurrentHashMap<>();
+
+        Family(String help, Type type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    /**
+     * A monotonically increasing count
+     */
+    public static class Counter implements LongSupplier {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        @Override
+        public long getAsLong() {
+            return value.sum();
+        }
+    }
+
+    private static class FunctionMetric implements LongSupplier {
+        private final LongSupplier value;
+
+        FunctionMetric(LongSupplier value) {
+            this.value = value;
+        }
+
+        @Override
+        public long getAsLong() {
+            return value.getAsLong();
+        }
+    }
+
+    /**
+     * Log-linear histogram in the style of HdrHistogram
+     *
+     * Each power of two is split into 16 linear sub-buckets, so any recorded value lands
+     * in a bucket no more than about 6% wide and the whole range of a long fits in 960
+     * buckets. Recording is one atomic increment; quantiles are read from a snapshot.
+     */
+    public static class Histogram {
+        private static final int SUB_BUCKET_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+        private final double scale;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram(double scale) {
+            this.scale = scale;
+        }
+
+        /**
+         * Record a value; negative values are recorded as 0
+         */
+        public void record(long value) {
+            value = Math.max(0, value);
+            counts.incrementAndGet(bucketOf(value));
+            sum.add(value);
+            if (value > max.get()) {
+                max.accumulateAndGet(value, Math::max);
+            }
+        }
+
+        /**
+         * Record the time since a System.nanoTime() reading, in microseconds
+         */
+        public void recordSince(long startNanos) {
+            record((System.nanoTime() - startNanos) / 1000);
+        }
+
+        static int bucketOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        /**
+         * Smallest value that falls into a bucket
+         */
+        static long lowerBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        }
+
+        public Snapshot snapshot() {
+            long[] copy = new long[BUCKETS];
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] = counts.get(i);
+                count += copy[i];
+            }
+            return new Snapshot(copy, count, sum.sum(), max.get());
+        }
+
+        /**
+         * A consistent-enough copy of the bucket counts, in exported units
+         */
+        public class Snapshot {
+            private final long[] buckets;
+            private final long count;
+            private final long sum;
+            private final long max;
+
+            Snapshot(long[] buckets, long count, long sum, long max) {
+                this.buckets = buckets;
+                this.count = count;
+                this.sum = sum;
+                this.max = max;
+            }
+
+            /**
+             * Value at a quantile (0-1), accurate to the width of its bucket
+             */
+            public double getQuantile(double quantile) {
+                if (count == 0) {
+                    return 0;
+                }
+                long rank = Math.max(1, (long) Math.ceil(quantile * count));
+                long seen = 0;
+                for (int i = 0; i < buckets.length; i++) {
+                    seen += buckets[i];
+                    if (seen >= rank) {
+                        // Middle of the bucket, but never past the largest value seen
+                        long low = lowerBound(i);
+                        long high = i + 1 < BUCKETS ? lowerBound(i + 1) - 1 : Long.MAX_VALUE;
+                        return Math.min(low + (high - low) / 2, max) * scale;
+                    }
+                }
+                return max * scale;
+            }
+
+            public long getCount() {
+                return count;
+            }
+
+            public double getSum() {
+                return sum * scale;
+            }
+
+            public double getMax() {
+                return max * scale;
+            }
+
+            public double getMean() {
+                return count > 0 ? sum * scale / count : 0;
+            }
+        }
+    }
+}
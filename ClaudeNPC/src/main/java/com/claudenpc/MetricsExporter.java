@@ -0,0 +1,123 @@
+package com.claudenpc;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Publishes {@link Metrics} in the Prometheus text format
+ *
+ * metrics.http-port serves them at /metrics for a Prometheus scraper; it binds to
+ * metrics.http-bind, localhost by default, since the endpoint has no authentication.
+ * metrics.export-file writes them to a file every metrics.export-interval seconds,
+ * for node_exporter's textfile collector or anything else that reads files.
+ */
+public class MetricsExporter {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Logger logger;
+    private final Metrics metrics;
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ScheduledExecutorService fileWriter;
+
+    public MetricsExporter(ClaudeNPC plugin, Metrics metrics) {
+        this.logger = plugin.getLogger();
+        this.metrics = metrics;
+
+        int port = plugin.getConfig().getInt("metrics.http-port", 0);
+        if (port > 0) {
+            String bind = plugin.getConfig().getString("metrics.http-bind", "127.0.0.1");
+            try {
+                server = HttpServer.create(new InetSocketAddress(bind, port), 0);
+                server.createContext("/metrics", this::serve);
+                serverExecutor = Executors.newSingleThreadExecutor(r -> {
+                    Thread thread = new Thread(r, "ClaudeNPC-Metrics");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                server.setExecutor(serverExecutor);
+                server.start();
+                logger.info("Serving metrics at http://" + bind + ":" + port + "/metrics");
+            } catch (IOException e) {
+                logger.warning("Failed to start metrics endpoint on port " + port + ": " + e.getMessage());
+                server = null;
+            }
+        }
+
+        String file = plugin.getConfig().getString("metrics.export-file", "");
+        if (file != null && !file.isEmpty()) {
+            Path target = plugin.getDataFolder().toPath().resolve(file);
+            int interval = Math.max(1, plugin.getConfig().getInt("metrics.export-interval", 30));
+            fileWriter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "ClaudeNPC-MetricsFile");
+                thread.setDaemon(true);
+                return thread;
+            });
+            fileWriter.scheduleAtFixedRate(() -> writeFile(target), interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = render();
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private byte[] render() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+        try (Writer writer = new OutputStreamWriter(buffer, StandardCharsets.UTF_8)) {
+            metrics.writePrometheus(writer);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Write to a temp file and move it into place, so readers never see a partial export
+     */
+    private void writeFile(Path target) {
+        try {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            Files.write(temp, render());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warning("Failed to write metrics to " + target + ": " + e.getMessage());
+        }
+    }
+
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            serverExecutor.shutdownNow();
+        }
+        if (fileWriter != null) {
+            fileWriter.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.claudenpc;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for the Claude messages endpoint, for load testing without API costs
+ *
+ * Answers POST /v1/messages with generated text, whole or as a server-sent event stream
+ * in the real API's format, after a configurable latency. A share of requests can be
+ * failed with 429 (with retry-after), 529 overloaded or 500 to exercise retries and the
+ * circuit breaker. Each request is handled on its own virtual thread, so hundreds of
+ * slow concurrent requests cost next to nothing.
+ *
+ * Run from the plugin jar and point claude.api-url at it:
+ * java -cp ClaudeNPC.jar com.claudenpc.MockClaudeServer --port 8089 --latency-ms 800
+ */
+public class MockClaudeServer {
+
+    private static final String[] WORDS = {"greetings", "traveller", "the", "village", "lies", "north", "of",
+            "here", "and", "the", "river", "runs", "past", "an", "old", "mill", "where", "redstone", "glows"};
+
+    private final Settings settings;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong overloaded = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    public MockClaudeServer(Settings settings) throws IOException {
+        this.settings = settings;
+        this.server = HttpServer.create(new InetSocketAddress(settings.bind, settings.port), 1024);
+        server.createContext("/v1/messages", this::handle);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Port the server listens on; useful when started with port 0
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        inFlight.incrementAndGet();
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            JsonObject request;
+            try (InputStreamReader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+                request = JsonParser.parseReader(reader).getAsJsonObject();
+            } catch (RuntimeException e) {
+                sendError(exchange, 400, "invalid_request_error", "Request body is not a JSON object");
+                return;
+            }
+
+            sleep(settings.latencyMillis + (settings.jitterMillis > 0
+                    ? ThreadLocalRandom.current().nextLong(settings.jitterMillis + 1) : 0));
+
+            // Failures are drawn in one roll so the rates add up as configured
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < settings.rateLimitRate) {
+                rateLimited.incrementAndGet();
+                exchange.getResponseHeaders().set("retry-after", String.valueOf(settings.retryAfterSeconds));
+                sendError(exchange, 429, "rate_limit_error", "Mock rate limit");
+                return;
+            }
+            roll -= settings.rateLimitRate;
+            if (roll < settings.overloadRate) {
+                overloaded.incrementAndGet();
+                sendError(exchange, 529, "overloaded_error", "Mock overload");
+                return;
+            }
+            roll -= settings.overloadRate;
+            if (roll < settings.errorRate) {
+                errors.incrementAndGet();
+                sendError(exchange, 500, "api_error", "Mock server error");
+                return;
+            }
+
+            String text = reply();
+            int inputTokens = estimateInputTokens(request);
+            int outputTokens = Math.max(1, text.length() / 4);
+            if (request.has("stream") && request.get("stream").getAsBoolean()) {
+                stream(exchange, text, inputTokens, outputTokens);
+            } else {
+                String body = "{\"id\":\"msg_mock\",\"type\":\"message\",\"role\":\"assistant\",\"model\":"
+                        + request.get("model") + ",\"content\":[{\"type\":\"text\",\"text\":\"" + text + "\"}],"
+                        + "\"stop_reason\":\"end_turn\",\"usage\":" + usage(inputTokens, outputTokens) + "}";
+                send(exchange, 200, "application/json", body);
+            }
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void stream(HttpExchange exchange, String text, int inputTokens, int outputTokens) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            event(out, "message_start", "{\"type\":\"message_start\",\"message\":{\"id\":\"msg_mock\","
+                    + "\"type\":\"message\",\"role\":\"assistant\",\"content\":[],\"usage\":"
+                    + usage(inputTokens, 1) + "}}");
+            event(out, "content_block_start", "{\"type\":\"content_block_start\",\"index\":0,"
+                    + "\"content_block\":{\"type\":\"text\",\"text\":\"\"}}");
+
+            // A few words per delta, as the real API sends them
+            int start = 0;
+            while (start < text.length()) {
+                int end = start;
+                for (int words = 0; words < 3 && end < text.length(); words++) {
+                    int space = text.indexOf(' ', end + 1);
+                    end = space < 0 ? text.length() : space;
+                }
+                event(out, "content_block_delta", "{\"type\":\"content_block_delta\",\"index\":0,"
+                        + "\"delta\":{\"type\":\"text_delta\",\"text\":\"" + text.substring(start, end) + "\"}}");
+                start = end;
+                sleep(settings.chunkDelayMillis);
+            }
+
+            event(out, "content_block_stop", "{\"type\":\"content_block_stop\",\"index\":0}");
+            event(out, "message_delta", "{\"type\":\"message_delta\",\"delta\":{\"stop_reason\":\"end_turn\"},"
+                    + "\"usage\":{\"output_tokens\":" + outputTokens + "}}");
+            event(out, "message_stop", "{\"type\":\"message_stop\"}");
+        }
+    }
+
+    private static void event(OutputStream out, String type, String data) throws IOException {
+        out.write(("event: " + type + "\ndata: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private String reply() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder text = new StringBuilder("Hello");
+        for (int i = 1; i < settings.replyWords; i++) {
+            text.append(i % 12 == 0 ? ". " : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.append('.').toString();
+    }
+
+    /**
+     * About four characters per token over the system prompt and messages
+     */
+    private static int estimateInputTokens(JsonObject request) {
+        int chars = 0;
+        for (String field : new String[] {"system", "messages"}) {
+            JsonElement element = request.get(field);
+            if (element != null) {
+                chars += element.toString().length();
+            }
+        }
+        return Math.max(1, chars / 4);
+    }
+
+    private static String usage(int inputTokens, int outputTokens) {
+        return "{\"input_tokens\":" + inputTokens + ",\"cache_creation_input_tokens\":0,"
+                + "\"cache_read_input_tokens\":0,\"output_tokens\":" + outputTokens + "}";
+    }
+
+    private static void sendError(HttpExchange exchange, int code, String type, String message) throws IOException {
+        send(exchange, code, "application/json",
+                "{\"type\":\"error\",\"error\":{\"type\":\"" + type + "\",\"message\":\"" + message + "\"}}");
+    }
+
+    private static void send(HttpExchange exchange, int code, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Request counts so far, in display order
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("requests", requests.get());
+        stats.put("in flight", inFlight.get());
+        stats.put("429", rateLimited.get());
+        stats.put("529", overloaded.get());
+        stats.put("500", errors.get());
+        return stats;
+    }
+
+    /**
+     * Latency, streaming and failure injection settings
+     */
+    public static class Settings {
+        private String bind = "127.0.0.1";
+        private int port = 8089;
+        private long latencyMillis = 500;
+        private long jitterMillis = 250;
+        private long chunkDelayMillis = 30;
+        private int replyWords = 40;
+        private double rateLimitRate;
+        private double overloadRate;
+        private double errorRate;
+        private int retryAfterSeconds = 1;
+
+        /**
+         * Parse --name value pairs, e.g. --port 8089 --latency-ms 800 --rate-limit-rate 0.05
+         * @throws IllegalArgumentException For unknown options or missing and malformed values
+         */
+        public static Settings parse(String[] args) {
+            Settings settings = new Settings();
+            for (int i = 0; i < args.length; i += 2) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + args[i]);
+                }
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--bind":
+                        settings.bind = value;
+                        break;
+                    case "--port":
+                        settings.port = Integer.parseInt(value);
+                        break;
+                    case "--latency-ms":
+                        settings.latencyMillis = Long.parseLong(value);
+                        break;
+                    case "--jitter-ms":
+                        settings.jitterMillis = Long.parseLong(value);
+                        break;
+                    case "--chunk-delay-ms":
+                        settings.chunkDelayMillis = Long.parseLong(value);
+                        break;
+                    case "--reply-words":
+                        settings.replyWords = Math.max(1, Integer.parseInt(value));
+                        break;
+                    case "--rate-limit-rate":
+                        settings.rateLimitRate = Double.parseDouble(value);
+                        break;
+                    case "--overload-rate":
+                        settings.overloadRate = Double.parseDouble(value);
+                        break;
+                    case "--error-rate":
+                        settings.errorRate = Double.parseDouble(value);
+                        break;
+                    case "--retry-after":
+                        settings.retryAfterSeconds = Integer.parseInt(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            return settings;
+        }
+
+        @Override
+        public String toString() {
+            return "latency " + latencyMillis + "±" + jitterMillis + " ms, " + replyWords + " words per reply, "
+                    + chunkDelayMillis + " ms between stream chunks, failing " + Math.round(rateLimitRate * 100)
+                    + "% with 429, " + Math.round(overloadRate * 100) + "% with 529, "
+                    + Math.round(errorRate * 100) + "% with 500";
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Settings settings;
+        try {
+            settings = Settings.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: MockClaudeServer [--bind 127.0.0.1] [--port 8089] [--latency-ms 500]"
+                    + " [--jitter-ms 250] [--chunk-delay-ms 30] [--reply-words 40] [--rate-limit-rate 0]"
+                    + " [--overload-rate 0] [--error-rate 0] [--retry-after 1]");
+            System.exit(1);
+            return;
+        }
+
+        MockClaudeServer server = new MockClaudeServer(settings);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        System.out.println("Mock Claude API at http://" + settings.bind + ":" + server.getPort() + "/v1/messages");
+        System.out.println(settings);
+
+        // Print the counts every 10 seconds while requests are coming in
+        long lastRequests = -1;
+        while (true) {
+            Thread.sleep(10_000);
+            Map<String, Long> stats = server.getStats();
+            if (stats.get("requests") != lastRequests) {
+                lastRequests = stats.get("requests");
+                System.out.println(stats);
+            }
+        }
+    }
+}
@@ -1,15 +1,20 @@
 package com.claudenpc;
 
+import net.citizensnpcs.api.event.NPCDespawnEvent;
+import net.citizensnpcs.api.event.NPCRemoveEvent;
 import net.citizensnpcs.api.event.NPCRightClickEvent;
 import net.citizensnpcs.api.npc.NPC;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Listens for player interactions with NPCs
@@ -17,10 +22,14 @@ import java.util.UUID;
 public class NPCListener implements Listener {
 
     private final ClaudeNPC plugin;
-    private final Map<UUID, NPC> activeTalking = new HashMap<>();
+    private final SessionRegistry sessions;
 
     public NPCListener(ClaudeNPC plugin) {
         this.plugin = plugin;
+        this.sessions = plugin.getSessionRegistry();
+
+        // End conversations players walked away from
+        plugin.getServer().getScheduler().runTaskTimer(plugin, this::expireIdleSessions, 20L * 30L, 20L * 30L);
     }
 
     /**
@@ -44,7 +53,17 @@ public class NPCListener implements Listener {
         }
 
         // Start conversation
-        activeTalking.put(player.getUniqueId(), npc);
+        SessionRegistry.Session previous;
+        try {
+            previous = sessions.start(player.getUniqueId(), npc, plugin.getConfig().getInt("npc.max-talkers", 0));
+        } catch (SessionRegistry.NPCBusyException e) {
+            player.sendMessage("§7§o[" + npc.getName() + " is talking to too many players. Try again later.]");
+            return;
+        }
+
+        if (previous != null) {
+            player.sendMessage("§7§o[Conversation ended with " + previous.getNPC().getName() + "]");
+        }
         player.sendMessage("§7§o[You are now talking to " + npc.getName() + ". Type your message in chat!]");
         player.sendMessage("§7§o[Type 'bye' or 'exit' to stop talking]");
     }
@@ -58,11 +77,12 @@ public class NPCListener implements Listener {
         UUID playerUUID = player.getUniqueId();
 
         // Check if player is talking to an NPC
-        if (!activeTalking.containsKey(playerUUID)) {
+        SessionRegistry.Session session = sessions.get(playerUUID);
+        if (session == null) {
             return;
         }
 
-        NPC npc = activeTalking.get(playerUUID);
+        NPC npc = session.getNPC();
         String message = event.getMessage();
 
         // Cancel the chat event so it doesn't broadcast
@@ -70,7 +90,7 @@ public class NPCListener implements Listener {
 
         // Check for exit commands
         if (message.equalsIgnoreCase("bye") || message.equalsIgnoreCase("exit") || message.equalsIgnoreCase("quit")) {
-            activeTalking.remove(playerUUID);
+            sessions.end(playerUUID);
             player.sendMessage("§7§o[Conversation ended with " + npc.getName() + "]");
             return;
         }
@@ -86,26 +106,132 @@ public class NPCListener implements Listener {
                 plugin.getConfig().getString("npc.default-personality"));
 
         // Send to Claude (async)
+        if (plugin.getConfigManager().isStreamingEnabled()) {
+            streamReply(player, npc, message, personality);
+            return;
+        }
+
         convManager.sendMessage(playerUUID, npc.getUniqueId(), message, personality)
                 .thenAccept(response -> {
+                    // Merged into an earlier message's turn - that one shows the reply
+                    if (response == null) {
+                        return;
+                    }
+
                     // Send response on main thread
                     plugin.getServer().getScheduler().runTask(plugin, () -> {
                         player.sendMessage("§e" + npc.getName() + ": §f" + response);
                     });
                 })
                 .exceptionally(throwable -> {
-                    plugin.getServer().getScheduler().runTask(plugin, () -> {
-                        player.sendMessage("§c" + npc.getName() + " seems confused and can't respond right now.");
-                        plugin.getLogger().warning("Error getting response for " + player.getName() + ": " + throwable.getMessage());
-                    });
+                    sendConfusedMessage(player, npc, throwable);
+                    return null;
+                });
+    }
+
+    /**
+     * Send a message to Claude and show the reply sentence by sentence as it streams in
+     */
+    private void streamReply(Player player, NPC npc, String message, String personality) {
+        AtomicBoolean firstChunk = new AtomicBoolean(true);
+
+        plugin.getConversationManager().sendMessage(player.getUniqueId(), npc.getUniqueId(), message, personality,
+                        chunk -> {
+                            // Only the first line carries the NPC's name, the rest read as a continuation
+                            String line = firstChunk.getAndSet(false)
+                                    ? "§e" + npc.getName() + ": §f" + chunk
+                                    : "§f" + chunk;
+                            plugin.getServer().getScheduler().runTask(plugin, () -> player.sendMessage(line));
+                        })
+                .exceptionally(throwable -> {
+                    sendConfusedMessage(player, npc, throwable);
                     return null;
                 });
     }
 
+    private void sendConfusedMessage(Player player, NPC npc, Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause() : throwable;
+        boolean busy = cause instanceof RateLimiter.RateLimitedException
+                || cause instanceof CircuitBreaker.CircuitOpenException
+                || (cause instanceof ClaudeAPIClient.APIException && ((ClaudeAPIClient.APIException) cause).isOverloaded());
+        if (busy) {
+            plugin.getServer().getScheduler().runTask(plugin, () ->
+                    player.sendMessage("§7§o" + npc.getName() + " is busy right now. Try again in a moment."));
+            return;
+        }
+
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            player.sendMessage("§c" + npc.getName() + " seems confused and can't respond right now.");
+            plugin.getLogger().warning("Error getting response for " + player.getName() + ": " + throwable.getMessage());
+        });
+    }
+
+    /**
+     * End a player's conversation when they log out
+     */
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        sessions.end(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * End conversations with an NPC that despawned
+     */
+    @EventHandler
+    public void onNPCDespawn(NPCDespawnEvent event) {
+        endAllConversations(event.getNPC(), "left");
+    }
+
+    /**
+     * End conversations with an NPC that was deleted
+     */
+    @EventHandler
+    public void onNPCRemove(NPCRemoveEvent event) {
+        endAllConversations(event.getNPC(), "is gone");
+    }
+
+    private void endAllConversations(NPC npc, String reason) {
+        Set<UUID> talkers = sessions.endAll(npc.getUniqueId());
+        for (UUID playerUUID : talkers) {
+            Player player = plugin.getServer().getPlayer(playerUUID);
+            if (player != null) {
+                player.sendMessage("§7§o[Conversation ended - " + npc.getName() + " " + reason + "]");
+            }
+        }
+    }
+
+    private void expireIdleSessions() {
+        int timeoutSeconds = plugin.getConfig().getInt("npc.session-timeout", 300);
+        if (timeoutSeconds <= 0) {
+            return;
+        }
+
+        List<SessionRegistry.Session> expired = sessions.expireIdle(timeoutSeconds * 1000L);
+        for (SessionRegistry.Session session : expired) {
+            Player player = plugin.getServer().getPlayer(session.getPlayerUUID());
+            if (player != null) {
+                player.sendMessage("§7§o[Conversation with " + session.getNPC().getName() + " ended - you went quiet]");
+            }
+        }
+    }
+
+    /**
+     * Send a message to every player talking to an NPC
+     */
+    public void broadcast(NPC npc, String message) {
+        for (UUID playerUUID : sessions.getTalkers(npc.getUniqueId())) {
+            Player player = plugin.getServer().getPlayer(playerUUID);
+            if (player != null) {
+                player.sendMessage(message);
+            }
+        }
+    }
+
     /**
      * Clear active conversation for a player
      */
     public void clearConversation(UUID playerUUID) {
-        activeTalking.remove(playerUUID);
+        sessions.end(playerUUID);
     }
 }
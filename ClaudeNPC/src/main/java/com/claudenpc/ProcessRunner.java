@@ -0,0 +1,125 @@
+package com.claudenpc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Runs an external process with both output pipes drained at once
+ *
+ * stdout and stderr are each pumped by their own virtual thread, so a process that
+ * fills one pipe while we are reading the other can't block, and the timeout is a
+ * wall-clock deadline from start rather than something checked after the reads finish.
+ */
+public class ProcessRunner {
+
+    // Keep at most this much stderr; a runaway script shouldn't fill the heap with tracebacks
+    private static final int MAX_STDERR_CHARS = 64 * 1024;
+
+    private ProcessRunner() {
+    }
+
+    /**
+     * Start a process and feed its stdout to a consumer line by line as it is written
+     * @param processBuilder Configured process
+     * @param timeoutMillis Deadline for the process to exit, from start
+     * @param onLine Receives each stdout line; if it throws, the process is killed and the error rethrown
+     * @return Exit code and captured stderr
+     * @throws TimeoutException if the process is still running at the deadline (it is killed)
+     */
+    public static Result run(ProcessBuilder processBuilder, long timeoutMillis, Consumer<String> onLine)
+            throws IOException, InterruptedException, TimeoutException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        Process process = processBuilder.start();
+        // Scripts have nothing to read; a closed stdin makes input() fail fast instead of hanging
+        process.getOutputStream().close();
+
+        StringBuilder errors = new StringBuilder();
+        RuntimeException[] consumerError = new RuntimeException[1];
+
+        Thread stdoutPump = Thread.ofVirtual().name("ClaudeNPC-Process-stdout").start(() -> {
+            try {
+                pump(process.getInputStream(), onLine);
+            } catch (RuntimeException e) {
+                consumerError[0] = e;
+                process.destroyForcibly();
+            }
+        });
+        Thread stderrPump = Thread.ofVirtual().name("ClaudeNPC-Process-stderr").start(() ->
+                pump(process.getErrorStream(), line -> {
+                    synchronized (errors) {
+                        if (errors.length() < MAX_STDERR_CHARS) {
+                            errors.append(line).append('\n');
+                        }
+                    }
+                }));
+
+        try {
+            if (!process.waitFor(remainingMillis(deadline), TimeUnit.MILLISECONDS)) {
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
+                process.destroyForcibly();
+                throw new TimeoutException("Process timed out after " + timeoutMillis / 1000 + " seconds");
+            }
+
+            // A child that inherited the pipes could keep them open; don't wait past the deadline for it
+            stdoutPump.join(Math.max(1, remainingMillis(deadline)));
+            stderrPump.join(Math.max(1, remainingMillis(deadline)));
+        } finally {
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+
+        if (consumerError[0] != null) {
+            throw consumerError[0];
+        }
+
+        synchronized (errors) {
+            return new Result(process.exitValue(), errors.toString());
+        }
+    }
+
+    private static void pump(InputStream stream, Consumer<String> onLine) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                onLine.accept(line);
+            }
+        } catch (IOException ignored) {
+            // Pipe closed because the process was killed
+        }
+    }
+
+    private static long remainingMillis(long deadline) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    /**
+     * Outcome of a finished process
+     */
+    public static class Result {
+        private final int exitCode;
+        private final String errors;
+
+        Result(int exitCode, String errors) {
+            this.exitCode = exitCode;
+            this.errors = errors;
+        }
+
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        /**
+         * Captured stderr, truncated if the process wrote a lot
+         */
+        public String getErrors() {
+            return errors;
+        }
+    }
+}
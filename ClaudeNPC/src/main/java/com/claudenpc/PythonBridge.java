@@ -1,11 +1,11 @@
 package com.claudenpc;
 
 import org.bukkit.Location;
-import org.bukkit.Material;
-import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
 
 import java.io.*;
 import java.nio.file.Files;
@@ -13,7 +13,12 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 /**
@@ -35,6 +40,16 @@ public class PythonBridge {
     private final Path scriptsDirectory;
     private final Path tempDirectory;
     private final int executionTimeoutSeconds;
+    private final BlockPlacementScheduler placementScheduler;
+    private final PythonWorkerPool workerPool;
+    private final PythonSandbox sandbox;
+    private final BuildQueue buildQueue;
+    private final Metrics.Histogram sandboxedJobTime;
+    private final Metrics.Histogram trustedJobTime;
+    private final BlueprintRegistry blueprints;
+    private final BlockStateResolver stateResolver;
+    private final BuildHistory buildHistory;
+    private volatile String pythonVersion;
 
     public PythonBridge(ClaudeNPC plugin) {
         this.plugin = plugin;
@@ -50,6 +65,15 @@ public class PythonBridge {
 
         this.tempDirectory = Paths.get(plugin.getDataFolder().getAbsolutePath() + "/temp");
         this.executionTimeoutSeconds = plugin.getConfig().getInt("python.timeout_seconds", 30);
+        this.placementScheduler = new BlockPlacementScheduler(plugin);
+        this.blueprints = new BlueprintRegistry(logger, scriptsDirectory);
+        this.stateResolver = new BlockStateResolver(logger);
+        this.buildHistory = new BuildHistory(plugin, placementScheduler);
+        this.buildQueue = new BuildQueue(plugin);
+        this.sandboxedJobTime = plugin.getMetrics().histogram("claudenpc_python_job_seconds",
+                "Wall time of Python jobs, including waiting for a worker", 1e-6, "sandboxed", "true");
+        this.trustedJobTime = plugin.getMetrics().histogram("claudenpc_python_job_seconds",
+                "Wall time of Python jobs, including waiting for a worker", 1e-6, "sandboxed", "false");
 
         // Ensure directories exist
         try {
@@ -59,6 +83,27 @@ public class PythonBridge {
         } catch (IOException e) {
             logger.severe("Failed to create Python directories: " + e.getMessage());
         }
+
+        this.sandbox = PythonSandbox.fromConfig(plugin);
+
+        // Long-lived workers, unless disabled or the worker script wasn't deployed.
+        // The sandbox is applied by the worker, so with workers off each sandboxed
+        // script gets a single-use worker instead.
+        Path workerScript = scriptsDirectory.resolve("npc_worker.py");
+        int workers = plugin.getConfig().getInt("python.workers", 2);
+        if ((workers > 0 || sandbox != null) && Files.exists(workerScript)) {
+            this.workerPool = new PythonWorkerPool(logger, pythonExecutable, workerScript, scriptsDirectory,
+                    Math.max(1, workers),
+                    plugin.getConfig().getInt("python.worker_queue_size", 16),
+                    workers > 0 ? plugin.getConfig().getInt("python.worker_max_jobs", 200) : 1,
+                    executionTimeoutSeconds);
+            logger.info("Python worker pool started with " + Math.max(1, workers) + " workers");
+        } else {
+            this.workerPool = null;
+            if (workers > 0) {
+                logger.warning("npc_worker.py not found in " + scriptsDirectory + ", starting a process per script");
+            }
+        }
     }
 
     /**
@@ -70,10 +115,66 @@ public class PythonBridge {
 
     /**
      * Execute Python code with environment variables
+     *
+     * The code is treated as untrusted: when python.sandbox is enabled it runs under
+     * the sandbox's CPU, memory and file limits.
      */
     public String executePythonCode(String code, Map<String, String> environment) throws Exception {
+        StringBuilder output = new StringBuilder();
+        streamPythonCode(code, environment, line -> output.append(line).append("\n"));
+        return output.toString().trim();
+    }
+
+    /**
+     * Execute untrusted Python code, handing each line of stdout to a consumer as soon as it is printed
+     * @param onLine Called on a background thread; if it throws, the script is stopped and the error rethrown
+     * @return Resources the script used, or null if it didn't run in the sandbox
+     */
+    public PythonSandbox.Usage streamPythonCode(String code, Map<String, String> environment,
+                                                Consumer<String> onLine) throws Exception {
+        return runPython(code, environment, onLine, sandbox);
+    }
+
+    /**
+     * Run Python code on a worker or, without workers, in a new process
+     * @param jobSandbox Limits to apply, or null when python.sandbox is disabled
+     */
+    private PythonSandbox.Usage runPython(String code, Map<String, String> environment,
+                                          Consumer<String> onLine, PythonSandbox jobSandbox) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return dispatchPython(code, environment, onLine, jobSandbox);
+        } finally {
+            (jobSandbox != null ? sandboxedJobTime : trustedJobTime).recordSince(start);
+        }
+    }
+
+    private PythonSandbox.Usage dispatchPython(String code, Map<String, String> environment,
+                                               Consumer<String> onLine, PythonSandbox jobSandbox) throws Exception {
+        if (workerPool != null) {
+            CompletableFuture<PythonWorkerPool.Result> job = workerPool.submit(code, environment, onLine, jobSandbox);
+            try {
+                PythonWorkerPool.Result result = job.get();
+                if (result.getUsage() != null) {
+                    logger.info("Python job used " + result.getUsage());
+                }
+                return result.getUsage();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            } catch (InterruptedException e) {
+                // The build was cancelled; stop the script rather than let it run on
+                job.cancel(true);
+                throw e;
+            }
+        }
+
+        if (jobSandbox != null) {
+            throw new Exception("Sandboxed Python needs npc_worker.py in " + scriptsDirectory +
+                              " (or set python.sandbox.enabled to false)");
+        }
+
         // Create temporary script file
-        Path tempScript = tempDirectory.resolve("script_" + System.currentTimeMillis() + ".py");
+        Path tempScript = tempDirectory.resolve("script_" + System.nanoTime() + ".py");
 
         try {
             // Write code to file
@@ -92,44 +193,12 @@ public class PythonBridge {
             // Set working directory to scripts folder
             processBuilder.directory(scriptsDirectory.toFile());
 
-            // Start process
-            Process process = processBuilder.start();
-
-            // Capture output
-            StringBuilder output = new StringBuilder();
-            StringBuilder errors = new StringBuilder();
-
-            try (BufferedReader outReader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()));
-                 BufferedReader errReader = new BufferedReader(
-                    new InputStreamReader(process.getErrorStream()))) {
-
-                String line;
-                while ((line = outReader.readLine()) != null) {
-                    output.append(line).append("\n");
-                }
-
-                while ((line = errReader.readLine()) != null) {
-                    errors.append(line).append("\n");
-                }
-            }
-
-            // Wait for completion with timeout
-            boolean completed = process.waitFor(executionTimeoutSeconds, TimeUnit.SECONDS);
-
-            if (!completed) {
-                process.destroyForcibly();
-                throw new Exception("Python execution timed out after " + executionTimeoutSeconds + " seconds");
-            }
-
-            int exitCode = process.exitValue();
-
-            if (exitCode != 0) {
-                throw new Exception("Python execution failed with exit code " + exitCode +
-                                  "\nErrors: " + errors.toString());
+            ProcessRunner.Result result = runProcess(processBuilder, onLine);
+            if (result.getExitCode() != 0) {
+                throw new Exception("Python execution failed with exit code " + result.getExitCode() +
+                                  "\nErrors: " + result.getErrors());
             }
-
-            return output.toString().trim();
+            return null;
 
         } finally {
             // Cleanup temp file
@@ -164,217 +233,204 @@ public class PythonBridge {
 
         processBuilder.directory(scriptsDirectory.toFile());
 
-        Process process = processBuilder.start();
-
-        // Capture output
         StringBuilder output = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-            }
-        }
-
-        boolean completed = process.waitFor(executionTimeoutSeconds, TimeUnit.SECONDS);
-        if (!completed) {
-            process.destroyForcibly();
-            throw new Exception("Script execution timed out");
+        ProcessRunner.Result result = runProcess(processBuilder, line -> output.append(line).append("\n"));
+        if (result.getExitCode() != 0) {
+            throw new Exception("Script " + scriptName + " failed with exit code " + result.getExitCode() +
+                              "\nErrors: " + result.getErrors());
         }
 
         return output.toString().trim();
     }
 
+    private ProcessRunner.Result runProcess(ProcessBuilder processBuilder, Consumer<String> onLine) throws Exception {
+        try {
+            return ProcessRunner.run(processBuilder, TimeUnit.SECONDS.toMillis(executionTimeoutSeconds), onLine);
+        } catch (TimeoutException e) {
+            throw new Exception("Python execution timed out after " + executionTimeoutSeconds + " seconds");
+        }
+    }
+
     /**
      * Build structure from Python-generated block list
      *
-     * Expected JSON format:
-     * [
-     *   {"x": 0, "y": 1, "z": 2, "material": "REDSTONE_WIRE", "properties": {...}},
+     * Expected output, one JSON block per line (NDJSON):
+     *   {"x": 0, "y": 1, "z": 2, "material": "REDSTONE_WIRE", "properties": {...}}
      *   ...
-     * ]
+     * A single-line JSON array of the same objects is also accepted. Lines that aren't
+     * JSON (stray debug prints) are skipped.
+     *
+     * Blocks are parsed as the script prints them and placement starts on the next tick,
+     * so large structures begin appearing before the script has finished. This call
+     * blocks until the script exits. The build is a transaction: if the script fails or
+     * the job is cancelled, whatever was already placed is rolled back.
+     * @return The placement job, which reports progress and completes with the number of blocks placed
      */
-    public int buildStructureFromPython(String pythonCode, Location origin) throws Exception {
-        // Execute Python code
-        String jsonOutput = executePythonCode(pythonCode);
-
-        // Parse JSON
-        JSONParser parser = new JSONParser();
-        JSONArray blocks = (JSONArray) parser.parse(jsonOutput);
-
-        // Place blocks
-        int placedCount = 0;
+    public BlockPlacementScheduler.PlacementJob buildStructureFromPython(String pythonCode, Location origin) throws Exception {
+        return buildStructureFromPython(pythonCode, origin, null, "Python structure");
+    }
 
-        for (Object obj : blocks) {
-            JSONObject jsonBlockData = (JSONObject) obj;
+    /**
+     * Build structure from Python-generated block list on behalf of a player
+     * @param owner Player who can undo the build, or null for the console
+     * @param description Shown in the undo history
+     */
+    public BlockPlacementScheduler.PlacementJob buildStructureFromPython(String pythonCode, Location origin,
+                                                                       UUID owner, String description) throws Exception {
+        return buildStructure(pythonCode, origin, owner, description, sandbox);
+    }
 
-            // Extract coordinates (relative to origin)
-            long x = (Long) jsonBlockData.get("x");
-            long y = (Long) jsonBlockData.get("y");
-            long z = (Long) jsonBlockData.get("z");
+    private BlockPlacementScheduler.PlacementJob buildStructure(String pythonCode, Location origin, UUID owner,
+                                                              String description, PythonSandbox jobSandbox) throws Exception {
+        BuildSnapshot snapshot = buildHistory.begin(owner, description, origin.getWorld());
+        BlockPlacementScheduler.PlacementJob job = placementScheduler.open(origin, snapshot);
+        buildHistory.track(job);
+        JSONParser parser = new JSONParser();
 
-            // Calculate absolute location
-            Location blockLocation = origin.clone().add(x, y, z);
-            Block block = blockLocation.getBlock();
+        try {
+            runPython(pythonCode, new HashMap<>(), line -> parseBlockLine(parser, line, stateResolver, job::add), jobSandbox);
+        } catch (Exception e) {
+            job.cancel();
+            throw e;
+        }
+        job.seal();
 
-            // Get material
-            String materialName = (String) jsonBlockData.get("material");
-            materialName = materialName.toUpperCase().replace("MINECRAFT:", "");
+        job.getCompletion().thenAccept(placedCount ->
+                logger.info("Placed " + placedCount + " blocks from Python-generated structure"));
+        return job;
+    }
 
-            try {
-                Material material = Material.valueOf(materialName);
-                block.setType(material);
-
-                // Handle block properties (facing, powered, waterlogged, etc.)
-                JSONObject properties = (JSONObject) jsonBlockData.get("properties");
-                if (properties != null && block.getBlockData() instanceof org.bukkit.block.data.BlockData) {
-                    org.bukkit.block.data.BlockData blockData = block.getBlockData();
-
-                    // Handle directional blocks (facing)
-                    if (blockData instanceof org.bukkit.block.data.Directional) {
-                        String facingStr = (String) properties.get("facing");
-                        if (facingStr != null) {
-                            try {
-                                org.bukkit.block.BlockFace facing = org.bukkit.block.BlockFace.valueOf(facingStr.toUpperCase());
-                                ((org.bukkit.block.data.Directional) blockData).setFacing(facing);
-                            } catch (IllegalArgumentException e) {
-                                logger.warning("Invalid facing direction: " + facingStr);
-                            }
-                        }
-                    }
-
-                    // Handle powered blocks (redstone components)
-                    if (blockData instanceof org.bukkit.block.data.Powerable) {
-                        Object poweredObj = properties.get("powered");
-                        if (poweredObj != null) {
-                            boolean powered = poweredObj instanceof Boolean ? (Boolean) poweredObj :
-                                            Boolean.parseBoolean(poweredObj.toString());
-                            ((org.bukkit.block.data.Powerable) blockData).setPowered(powered);
-                        }
-                    }
-
-                    // Handle delay for repeaters
-                    if (blockData instanceof org.bukkit.block.data.type.Repeater) {
-                        Object delayObj = properties.get("delay");
-                        if (delayObj != null) {
-                            int delay = delayObj instanceof Long ? ((Long) delayObj).intValue() :
-                                       Integer.parseInt(delayObj.toString());
-                            ((org.bukkit.block.data.type.Repeater) blockData).setDelay(delay);
-                        }
-                    }
-
-                    // Handle comparator mode
-                    if (blockData instanceof org.bukkit.block.data.type.Comparator) {
-                        String modeStr = (String) properties.get("mode");
-                        if (modeStr != null) {
-                            try {
-                                org.bukkit.block.data.type.Comparator.Mode mode =
-                                    org.bukkit.block.data.type.Comparator.Mode.valueOf(modeStr.toUpperCase());
-                                ((org.bukkit.block.data.type.Comparator) blockData).setMode(mode);
-                            } catch (IllegalArgumentException e) {
-                                logger.warning("Invalid comparator mode: " + modeStr);
-                            }
-                        }
-                    }
-
-                    // Handle lit state (torches, lamps)
-                    if (blockData instanceof org.bukkit.block.data.Lightable) {
-                        Object litObj = properties.get("lit");
-                        if (litObj != null) {
-                            boolean lit = litObj instanceof Boolean ? (Boolean) litObj :
-                                         Boolean.parseBoolean(litObj.toString());
-                            ((org.bukkit.block.data.Lightable) blockData).setLit(lit);
-                        }
-                    }
-
-                    // Handle waterlogged state
-                    if (blockData instanceof org.bukkit.block.data.Waterlogged) {
-                        Object waterloggedObj = properties.get("waterlogged");
-                        if (waterloggedObj != null) {
-                            boolean waterlogged = waterloggedObj instanceof Boolean ? (Boolean) waterloggedObj :
-                                                 Boolean.parseBoolean(waterloggedObj.toString());
-                            ((org.bukkit.block.data.Waterlogged) blockData).setWaterlogged(waterlogged);
-                        }
-                    }
-
-                    // Apply updated block data
-                    block.setBlockData(blockData);
-                }
+    /**
+     * Parse one line of script output into block placements
+     * @param out Receives each block whose material resolved
+     */
+    static void parseBlockLine(JSONParser parser, String line, BlockStateResolver resolver,
+                               Consumer<BlockPlacement> out) {
+        String trimmed = line.trim();
+        if (!trimmed.startsWith("{") && !trimmed.startsWith("[")) {
+            return;
+        }
 
-                placedCount++;
+        Object parsed;
+        try {
+            parsed = parser.parse(trimmed);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid block JSON from script: " + e);
+        }
 
-            } catch (IllegalArgumentException e) {
-                logger.warning("Unknown material: " + materialName);
+        if (parsed instanceof JSONArray) {
+            for (Object obj : (JSONArray) parsed) {
+                addBlock((JSONObject) obj, resolver, out);
             }
+        } else {
+            addBlock((JSONObject) parsed, resolver, out);
         }
+    }
 
-        logger.info("Placed " + placedCount + " blocks from Python-generated structure");
-        return placedCount;
+    private static void addBlock(JSONObject jsonBlockData, BlockStateResolver resolver, Consumer<BlockPlacement> out) {
+        // Extract coordinates (relative to origin)
+        long x = (Long) jsonBlockData.get("x");
+        long y = (Long) jsonBlockData.get("y");
+        long z = (Long) jsonBlockData.get("z");
+
+        BlockData blockData = resolver.resolve(
+                (String) jsonBlockData.get("material"), (JSONObject) jsonBlockData.get("properties"));
+        if (blockData != null) {
+            out.accept(new BlockPlacement((int) x, (int) y, (int) z, blockData));
+        }
     }
 
     /**
-     * Build quantum circuit using quantum_circuit_generator.py
+     * Build quantum circuit
      *
+     * Built-in circuits are generated in-process and custom ones come from the blueprint
+     * registry.
      * @param circuitName One of: state_preparation, pauli_x_gate, pauli_z_gate,
-     *                    hadamard_gate, cnot_gate, phase_evolution_engine, conservation_verifier
+     *                    hadamard_gate, cnot_gate, phase_evolution_engine, conservation_verifier,
+     *                    or the name of a blueprint in blueprints/
+     * @throws IllegalArgumentException If neither knows the circuit
      */
-    public int buildQuantumCircuit(String circuitName, Location origin) throws Exception {
+    public BlockPlacementScheduler.PlacementJob buildQuantumCircuit(String circuitName, Location origin) throws Exception {
+        return buildQuantumCircuit(circuitName, origin, null);
+    }
+
+    /**
+     * Build quantum circuit on behalf of a player
+     * @param owner Player who can undo the build, or null for the console
+     */
+    public BlockPlacementScheduler.PlacementJob buildQuantumCircuit(String circuitName, Location origin, UUID owner) throws Exception {
         logger.info("Building quantum circuit: " + circuitName + " at " +
                    origin.getBlockX() + "," + origin.getBlockY() + "," + origin.getBlockZ());
 
-        // Python code to generate circuit
-        String pythonCode = String.format(
-            "import json\n" +
-            "import sys\n" +
-            "sys.path.insert(0, '%s')\n" +
-            "\n" +
-            "from quantum_circuit_generator import *\n" +
-            "\n" +
-            "# Generate circuit\n" +
-            "if '%s' == 'state_preparation':\n" +
-            "    circuit = generate_state_preparation()\n" +
-            "elif '%s' == 'pauli_x_gate':\n" +
-            "    circuit = generate_pauli_x()\n" +
-            "elif '%s' == 'pauli_z_gate':\n" +
-            "    circuit = generate_pauli_z()\n" +
-            "elif '%s' == 'hadamard_gate':\n" +
-            "    circuit = generate_hadamard()\n" +
-            "elif '%s' == 'cnot_gate':\n" +
-            "    circuit = generate_cnot()\n" +
-            "elif '%s' == 'phase_evolution_engine':\n" +
-            "    lookup_table = generate_lookup_table(16)\n" +
-            "    circuit = generate_phase_engine(lookup_table)\n" +
-            "elif '%s' == 'conservation_verifier':\n" +
-            "    circuit = generate_conservation_verifier()\n" +
-            "else:\n" +
-            "    raise ValueError('Unknown circuit: %s')\n" +
-            "\n" +
-            "# Convert to JSON\n" +
-            "blocks = []\n" +
-            "for block in circuit.blocks:\n" +
-            "    block_dict = {\n" +
-            "        'x': block.x,\n" +
-            "        'y': block.y,\n" +
-            "        'z': block.z,\n" +
-            "        'material': block.block_id\n" +
-            "    }\n" +
-            "    if block.properties:\n" +
-            "        block_dict['properties'] = block.properties\n" +
-            "    blocks.append(block_dict)\n" +
-            "\n" +
-            "print(json.dumps(blocks))\n",
-            scriptsDirectory.toString().replace("\\", "\\\\"),
-            circuitName, circuitName, circuitName, circuitName, circuitName,
-            circuitName, circuitName, circuitName
-        );
-
-        return buildStructureFromPython(pythonCode, origin);
+        // Built-in circuits are generated in-process; the registry adds custom .cnpb blueprints
+        Blueprint blueprint = QuantumCircuitGenerator.generate(circuitName);
+        if (blueprint == null) {
+            blueprint = blueprints.get(circuitName);
+        }
+        if (blueprint == null) {
+            throw new IllegalArgumentException("Unknown circuit: " + circuitName);
+        }
+
+        BuildSnapshot snapshot = buildHistory.begin(owner, circuitName, origin.getWorld());
+        BlockPlacementScheduler.PlacementJob job =
+                placementScheduler.submit(origin, blueprint.toPlacements(stateResolver), snapshot);
+        buildHistory.track(job);
+        job.getCompletion().thenAccept(placedCount ->
+                logger.info("Placed " + placedCount + " blocks from blueprint " + circuitName));
+        return job;
+    }
+
+    /**
+     * Queue a circuit build to run off the main thread
+     * @param owner Player the build is for, or null for the console
+     * @throws BuildQueue.BuildRejectedException If the queue is full or the player has too many builds
+     */
+    public BuildQueue.BuildJob queueQuantumCircuit(String circuitName, Location origin, UUID owner,
+                                                   BuildQueue.Priority priority) {
+        Location target = origin.clone();
+        return buildQueue.submit(owner, circuitName, priority, () -> buildQuantumCircuit(circuitName, target, owner));
+    }
+
+    /**
+     * Queue a build from generated Python code to run off the main thread
+     * @param owner Player the build is for, or null for the console
+     * @throws BuildQueue.BuildRejectedException If the queue is full or the player has too many builds
+     */
+    public BuildQueue.BuildJob queueStructureFromPython(String pythonCode, Location origin, UUID owner,
+                                                        String description, BuildQueue.Priority priority) {
+        Location target = origin.clone();
+        return buildQueue.submit(owner, description, priority,
+                () -> buildStructureFromPython(pythonCode, target, owner, description));
+    }
+
+    public BuildQueue getBuildQueue() {
+        return buildQueue;
+    }
+
+    public BlockStateResolver getStateResolver() {
+        return stateResolver;
+    }
+
+    public BuildHistory getBuildHistory() {
+        return buildHistory;
+    }
+
+    public BlueprintRegistry getBlueprints() {
+        return blueprints;
+    }
+
+    public BlockPlacementScheduler getPlacementScheduler() {
+        return placementScheduler;
     }
 
     /**
      * Check if Python is available
      */
     public boolean isPythonAvailable() {
+        if (workerPool != null && workerPool.getPythonVersion() != null) {
+            return true;
+        }
+
         try {
             ProcessBuilder pb = new ProcessBuilder(pythonExecutable.toString(), "--version");
             Process process = pb.start();
@@ -389,16 +445,43 @@ public class PythonBridge {
      * Get Python version string
      */
     public String getPythonVersion() {
+        if (workerPool != null && workerPool.getPythonVersion() != null) {
+            return "Python " + workerPool.getPythonVersion();
+        }
+
+        // The version can't change while the server runs - only spawn once
+        if (pythonVersion != null) {
+            return pythonVersion;
+        }
+
         try {
             ProcessBuilder pb = new ProcessBuilder(pythonExecutable.toString(), "--version");
             Process process = pb.start();
 
             try (BufferedReader reader = new BufferedReader(
                     new InputStreamReader(process.getInputStream()))) {
-                return reader.readLine();
+                pythonVersion = reader.readLine();
+                return pythonVersion;
             }
         } catch (Exception e) {
             return "Unknown";
         }
     }
+
+    public PythonWorkerPool getWorkerPool() {
+        return workerPool;
+    }
+
+    /**
+     * Cancel queued builds, stop the worker pool and cancel pending placements,
+     * rolling back any build that was cut short (on the main thread, from onDisable)
+     */
+    public void close() {
+        buildQueue.shutdown();
+        if (workerPool != null) {
+            workerPool.shutdown();
+        }
+        placementScheduler.shutdown();
+        buildHistory.close();
+    }
 }
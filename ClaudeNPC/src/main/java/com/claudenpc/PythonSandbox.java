@@ -0,0 +1,134 @@
+package com.claudenpc;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.util.List;
+
+/**
+ * Resource limits for running untrusted (Claude-generated) Python
+ *
+ * Applied by npc_worker.py in a forked child per job: rlimits on CPU time, address
+ * space and open files, a nice value so the server thread wins the CPU, an environment
+ * reduced to an allowlist and a private temp working directory. Configured under
+ * python.sandbox.
+ */
+public class PythonSandbox {
+
+    private final int cpuSeconds;
+    private final int memoryMb;
+    private final int maxOpenFiles;
+    private final int nice;
+    private final List<String> allowedEnv;
+
+    public PythonSandbox(int cpuSeconds, int memoryMb, int maxOpenFiles, int nice, List<String> allowedEnv) {
+        this.cpuSeconds = cpuSeconds;
+        this.memoryMb = memoryMb;
+        this.maxOpenFiles = maxOpenFiles;
+        this.nice = nice;
+        this.allowedEnv = List.copyOf(allowedEnv);
+    }
+
+    /**
+     * Read python.sandbox from the config
+     * @return The sandbox, or null if python.sandbox.enabled is false
+     */
+    public static PythonSandbox fromConfig(ClaudeNPC plugin) {
+        if (!plugin.getConfig().getBoolean("python.sandbox.enabled", true)) {
+            return null;
+        }
+        List<String> allowedEnv = plugin.getConfig().getStringList("python.sandbox.allowed_env");
+        return new PythonSandbox(
+                plugin.getConfig().getInt("python.sandbox.cpu_seconds", 10),
+                plugin.getConfig().getInt("python.sandbox.memory_mb", 512),
+                plugin.getConfig().getInt("python.sandbox.max_open_files", 64),
+                plugin.getConfig().getInt("python.sandbox.nice", 10),
+                allowedEnv.isEmpty() ? List.of("PATH", "LANG", "PYTHONIOENCODING") : allowedEnv);
+    }
+
+    /**
+     * The sandbox field of a worker exec request
+     */
+    JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("cpu_seconds", cpuSeconds);
+        json.addProperty("memory_mb", memoryMb);
+        json.addProperty("max_open_files", maxOpenFiles);
+        json.addProperty("nice", nice);
+        JsonArray env = new JsonArray();
+        allowedEnv.forEach(env::add);
+        json.add("allowed_env", env);
+        return json;
+    }
+
+    public int getCpuSeconds() {
+        return cpuSeconds;
+    }
+
+    public int getMemoryMb() {
+        return memoryMb;
+    }
+
+    /**
+     * Resources one job used, as reported by the worker
+     */
+    public static class Usage {
+        private final boolean sandboxed;
+        private final double cpuSeconds;
+        private final long maxRssKb;
+        private final double wallSeconds;
+        private final String limit;
+
+        Usage(boolean sandboxed, double cpuSeconds, long maxRssKb, double wallSeconds, String limit) {
+            this.sandboxed = sandboxed;
+            this.cpuSeconds = cpuSeconds;
+            this.maxRssKb = maxRssKb;
+            this.wallSeconds = wallSeconds;
+            this.limit = limit;
+        }
+
+        static Usage fromJson(JsonObject json) {
+            return new Usage(
+                    json.has("sandboxed") && json.get("sandboxed").getAsBoolean(),
+                    json.has("cpu_seconds") ? json.get("cpu_seconds").getAsDouble() : 0,
+                    json.has("max_rss_kb") ? json.get("max_rss_kb").getAsLong() : 0,
+                    json.has("wall_seconds") ? json.get("wall_seconds").getAsDouble() : 0,
+                    json.has("limit") && !json.get("limit").isJsonNull() ? json.get("limit").getAsString() : null);
+        }
+
+        /**
+         * False when the platform couldn't apply limits (no fork or resource module)
+         */
+        public boolean isSandboxed() {
+            return sandboxed;
+        }
+
+        public double getCpuSeconds() {
+            return cpuSeconds;
+        }
+
+        /**
+         * Peak resident memory of the job
+         */
+        public long getMaxRssKb() {
+            return maxRssKb;
+        }
+
+        public double getWallSeconds() {
+            return wallSeconds;
+        }
+
+        /**
+         * The limit the job ran into (cpu, memory, open_files or a signal name), or null
+         */
+        public String getLimit() {
+            return limit;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.2fs CPU, %.2fs wall, %d MB peak%s%s", cpuSeconds, wallSeconds, maxRssKb / 1024,
+                    limit != null ? ", hit " + limit + " limit" : "", sandboxed ? "" : " (not sandboxed)");
+        }
+    }
+}
@@ -0,0 +1,487 @@
+package com.claudenpc;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Pool of long-lived Python worker processes (python-scripts/npc_worker.py)
+ *
+ * Each pool thread owns one worker and feeds it jobs from a bounded queue over a framed
+ * JSON protocol on stdin/stdout. Workers are health-checked while idle, killed and
+ * replaced when a job overruns its timeout, and recycled after a fixed number of jobs
+ * so leaks in generated code can't accumulate. Jobs given a {@link PythonSandbox} run
+ * in a forked, resource-limited child of the worker and report what they used.
+ */
+public class PythonWorkerPool {
+
+    private static final long HEALTH_CHECK_SECONDS = 30;
+    private static final long PING_TIMEOUT_MILLIS = 5000;
+
+    private final Logger logger;
+    private final Path pythonExecutable;
+    private final Path workerScript;
+    private final Path workingDirectory;
+    private final int maxJobsPerWorker;
+    private final long timeoutMillis;
+
+    private final BlockingQueue<Job> queue;
+    private final List<Thread> threads = new ArrayList<>();
+    // Every worker process still running, so shutdown can kill those stuck in a job
+    private final Set<Worker> liveWorkers = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService watchdog;
+    private final Gson gson = new Gson();
+    private volatile boolean running = true;
+    private volatile String pythonVersion;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong restarts = new AtomicLong();
+
+    public PythonWorkerPool(Logger logger, Path pythonExecutable, Path workerScript, Path workingDirectory,
+                            int workers, int queueSize, int maxJobsPerWorker, int timeoutSeconds) {
+        this.logger = logger;
+        this.pythonExecutable = pythonExecutable;
+        this.workerScript = workerScript;
+        this.workingDirectory = workingDirectory;
+        this.maxJobsPerWorker = Math.max(1, maxJobsPerWorker);
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ClaudeNPC-Python-Watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(this::workerLoop, "ClaudeNPC-Python-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    /**
+     * Queue Python code to run on a worker
+     * @param code Python source
+     * @param environment Extra environment variables for the job
+     * @return CompletableFuture with the script's stdout, trimmed
+     */
+    public CompletableFuture<String> submit(String code, Map<String, String> environment) {
+        return submit(code, environment, null);
+    }
+
+    /**
+     * Queue Python code to run on a worker, receiving its stdout line by line while it runs
+     * @param onLine Called on a pool thread for each stdout line; if it throws, the script is
+     *               stopped and the job fails with that exception
+     * @return CompletableFuture that completes (with an empty string) when the script ends
+     */
+    public CompletableFuture<String> submit(String code, Map<String, String> environment, Consumer<String> onLine) {
+        return submit(code, environment, onLine, null).thenApply(Result::getOutput);
+    }
+
+    /**
+     * Queue Python code to run on a worker, optionally inside a sandbox
+     * @param onLine Receives stdout line by line, or null to collect it into the result
+     * @param sandbox Limits for untrusted code, or null to run with the worker's full privileges
+     * @return CompletableFuture with the output and, for sandboxed jobs, resource usage.
+     *         Cancelling it drops the job, or stops it if it is already running.
+     */
+    public CompletableFuture<Result> submit(String code, Map<String, String> environment,
+                                            Consumer<String> onLine, PythonSandbox sandbox) {
+        Job job = new Job(code, environment, onLine, sandbox);
+        if (!running) {
+            job.future.completeExceptionally(new RejectedExecutionException("Python worker pool is shut down"));
+        } else if (!queue.offer(job)) {
+            job.future.completeExceptionally(new RejectedExecutionException("Python worker queue is full"));
+        }
+        return job.future;
+    }
+
+    private void workerLoop() {
+        Worker worker = null;
+
+        while (running) {
+            Job job;
+            try {
+                job = queue.poll(HEALTH_CHECK_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            if (job != null && job.future.isDone()) {
+                // Cancelled while it was queued
+                continue;
+            }
+
+            if (worker != null && (!worker.process.isAlive() || worker.jobsRun >= maxJobsPerWorker)) {
+                worker.stop();
+                worker = null;
+            }
+
+            try {
+                if (job == null) {
+                    // Idle - make sure the worker is still answering
+                    if (worker != null && !worker.ping()) {
+                        logger.warning("Python worker failed its health check, restarting");
+                        restarts.incrementAndGet();
+                        worker.stop();
+                        worker = null;
+                    }
+                    continue;
+                }
+
+                if (worker == null) {
+                    worker = startWorker();
+                }
+                job.future.complete(worker.run(job));
+                completed.incrementAndGet();
+            } catch (TimeoutException e) {
+                timeouts.incrementAndGet();
+                failed.incrementAndGet();
+                job.future.completeExceptionally(new Exception(
+                        "Python execution timed out after " + timeoutMillis / 1000 + " seconds"));
+                worker.stop();
+                worker = null;
+            } catch (ScriptException e) {
+                // The script failed; the worker is fine, or was killed to stop it and is replaced next job
+                failed.incrementAndGet();
+                job.future.completeExceptionally(e.getCause() != null ? e.getCause() : e);
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                if (job != null) {
+                    job.future.completeExceptionally(e);
+                }
+                if (worker != null) {
+                    restarts.incrementAndGet();
+                    worker.stop();
+                    worker = null;
+                }
+            }
+        }
+
+        if (worker != null) {
+            worker.stop();
+        }
+    }
+
+    private Worker startWorker() throws IOException {
+        ProcessBuilder processBuilder = new ProcessBuilder(
+                pythonExecutable.toString(), "-u", workerScript.toString());
+        processBuilder.directory(workingDirectory.toFile());
+
+        Worker worker = new Worker(processBuilder.start());
+        liveWorkers.add(worker);
+        if (!running) {
+            // Shut down while this one was starting
+            worker.kill();
+            throw new IOException("Python worker pool is shut down");
+        }
+        if (!worker.ping()) {
+            worker.stop();
+            throw new IOException("Python worker did not start");
+        }
+        return worker;
+    }
+
+    /**
+     * Stop all workers and fail queued jobs
+     *
+     * Workers are killed outright, along with any sandboxed job they forked: a thread
+     * waiting on a running script is blocked in a read that ignores interrupts.
+     */
+    public void shutdown() {
+        running = false;
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        for (Worker worker : liveWorkers) {
+            worker.kill();
+        }
+        watchdog.shutdownNow();
+
+        Job job;
+        while ((job = queue.poll()) != null) {
+            job.future.completeExceptionally(new RejectedExecutionException("Python worker pool is shut down"));
+        }
+    }
+
+    /**
+     * Python version reported by a worker, or null if none has started yet
+     */
+    public String getPythonVersion() {
+        return pythonVersion;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    public long getRestarts() {
+        return restarts.get();
+    }
+
+    private static class Job {
+        private final CompletableFuture<Result> future = new CompletableFuture<>();
+        private final String code;
+        private final Map<String, String> environment;
+        private final Consumer<String> onLine;
+        private final PythonSandbox sandbox;
+
+        Job(String code, Map<String, String> environment, Consumer<String> onLine, PythonSandbox sandbox) {
+            this.code = code;
+            this.environment = environment;
+            this.onLine = onLine;
+            this.sandbox = sandbox;
+        }
+    }
+
+    /**
+     * Output of a finished job
+     */
+    public static class Result {
+        private final String output;
+        private final PythonSandbox.Usage usage;
+
+        Result(String output, PythonSandbox.Usage usage) {
+            this.output = output;
+            this.usage = usage;
+        }
+
+        /**
+         * The script's stdout, trimmed; empty when it was streamed line by line
+         */
+        public String getOutput() {
+            return output;
+        }
+
+        /**
+         * Resources the job used, or null if it didn't run in a sandbox
+         */
+        public PythonSandbox.Usage getUsage() {
+            return usage;
+        }
+    }
+
+    /**
+     * A script ran but exited with an error
+     */
+    private static class ScriptException extends Exception {
+        ScriptException(String message) {
+            super(message);
+        }
+
+        ScriptException(RuntimeException cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * One worker process and its pipes
+     */
+    private class Worker {
+        private final Process process;
+        private final DataOutputStream requests;
+        private final DataInputStream responses;
+        private int jobsRun;
+        private long nextId;
+        private volatile Job current;
+
+        Worker(Process process) {
+            this.process = process;
+            this.requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.responses = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+
+            // Drain stderr so a chatty worker can never block on a full pipe
+            Thread drain = new Thread(() -> {
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        logger.fine("[python-worker] " + line);
+                    }
+                } catch (IOException ignored) {
+                    // Process ended
+                }
+            }, "ClaudeNPC-Python-Stderr");
+            drain.setDaemon(true);
+            drain.start();
+        }
+
+        boolean ping() {
+            try {
+                JsonObject request = new JsonObject();
+                request.addProperty("type", "ping");
+                JsonObject response = exchange(request, PING_TIMEOUT_MILLIS, null);
+                if (response.has("version")) {
+                    pythonVersion = response.get("version").getAsString();
+                }
+                return response.has("ok") && response.get("ok").getAsBoolean();
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        Result run(Job job) throws IOException, TimeoutException, ScriptException {
+            JsonObject request = new JsonObject();
+            request.addProperty("type", "exec");
+            request.addProperty("code", job.code);
+            request.add("env", gson.toJsonTree(job.environment));
+            request.addProperty("stream", job.onLine != null);
+            if (job.sandbox != null) {
+                request.add("sandbox", job.sandbox.toJson());
+            }
+
+            // A consumer that throws stops the script; the pipe is out of step now, so the worker goes too
+            RuntimeException[] lineError = new RuntimeException[1];
+            Consumer<String> onLine = job.onLine == null ? null : line -> {
+                if (lineError[0] == null) {
+                    try {
+                        job.onLine.accept(line);
+                    } catch (RuntimeException e) {
+                        lineError[0] = e;
+                        kill();
+                    }
+                }
+            };
+
+            // Killing the worker is the only way to stop a script part way. The hook goes on
+            // after current is set, and the check after it catches a cancel that beat the hook
+            current = job;
+            job.future.whenComplete((result, error) -> {
+                if (job.future.isCancelled() && current == job) {
+                    kill();
+                }
+            });
+            if (job.future.isCancelled()) {
+                current = null;
+                throw new ScriptException("Python job was cancelled");
+            }
+
+            jobsRun++;
+            JsonObject response;
+            try {
+                response = exchange(request, timeoutMillis, onLine);
+            } catch (IOException e) {
+                if (lineError[0] != null) {
+                    throw new ScriptException(lineError[0]);
+                }
+                throw e;
+            } finally {
+                current = null;
+            }
+            if (lineError[0] != null) {
+                throw new ScriptException(lineError[0]);
+            }
+
+            PythonSandbox.Usage usage = response.has("usage")
+                    ? PythonSandbox.Usage.fromJson(response.getAsJsonObject("usage")) : null;
+            int exitCode = response.get("exit_code").getAsInt();
+            if (exitCode != 0) {
+                String limit = usage != null && usage.getLimit() != null
+                        ? " (sandbox " + usage.getLimit() + " limit reached)" : "";
+                throw new ScriptException("Python execution failed with exit code " + exitCode + limit +
+                        "\nErrors: " + response.get("stderr").getAsString());
+            }
+            if (job.sandbox != null && (usage == null || !usage.isSandboxed())) {
+                // An older worker script runs the job unlimited where it can't sandbox; don't trust the result
+                throw new ScriptException("Python job asked for a sandbox but ran without one");
+            }
+            return new Result(response.get("stdout").getAsString().trim(), usage);
+        }
+
+        /**
+         * Send one request frame and wait for its response, killing the worker at the deadline
+         * @param onLine Receives streamed stdout frames that arrive before the response, or null
+         */
+        private JsonObject exchange(JsonObject request, long timeout, Consumer<String> onLine)
+                throws IOException, TimeoutException {
+            long id = ++nextId;
+            request.addProperty("id", id);
+            byte[] payload = request.toString().getBytes(StandardCharsets.UTF_8);
+
+            AtomicBoolean timedOut = new AtomicBoolean();
+            ScheduledFuture<?> deadline = watchdog.schedule(() -> {
+                timedOut.set(true);
+                kill();
+            }, timeout, TimeUnit.MILLISECONDS);
+
+            try {
+                requests.writeInt(payload.length);
+                requests.write(payload);
+                requests.flush();
+
+                while (true) {
+                    byte[] frame = new byte[responses.readInt()];
+                    responses.readFully(frame);
+                    JsonObject response = gson.fromJson(new String(frame, StandardCharsets.UTF_8), JsonObject.class);
+                    if (response.get("id").getAsLong() != id) {
+                        throw new IOException("Python worker answered out of order");
+                    }
+                    if (!response.has("line")) {
+                        return response;
+                    }
+                    if (onLine != null) {
+                        onLine.accept(response.get("line").getAsString());
+                    }
+                }
+            } catch (IOException e) {
+                if (timedOut.get()) {
+                    throw new TimeoutException();
+                }
+                throw e;
+            } finally {
+                deadline.cancel(false);
+            }
+        }
+
+        void stop() {
+            try {
+                // The worker exits on EOF
+                requests.close();
+                if (!process.waitFor(1, TimeUnit.SECONDS)) {
+                    kill();
+                }
+            } catch (IOException | InterruptedException e) {
+                kill();
+            }
+            liveWorkers.remove(this);
+        }
+
+        /**
+         * Kill the worker and any sandboxed job it forked
+         */
+        private void kill() {
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+            liveWorkers.remove(this);
+        }
+    }
+}
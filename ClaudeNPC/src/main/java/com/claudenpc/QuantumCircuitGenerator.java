@@ -0,0 +1,388 @@
+package com.claudenpc;
+
+import java.util.List;
+
+/**
+ * In-process port of quantum_circuit_generator.py
+ *
+ * Produces the same circuits, block for block and in the same order, as the Python
+ * generator, so a build no longer needs a process or the checked-in JSON. Block
+ * entity data (chest and dropper contents) isn't part of a {@link Blueprint} and is
+ * left out, as it was when quantum_circuits.json was loaded.
+ *
+ * QuantumCircuitGeneratorTest compares the output against the generator's checked-in
+ * quantum_circuits.json and phase_lookup_table.json, so the two can't drift apart.
+ */
+public final class QuantumCircuitGenerator {
+
+    public static final int MAX_SIGNAL = 15;
+    public static final int DEFAULT_STEPS = 16;
+
+    private static final List<String> NAMES = List.of("state_preparation", "pauli_x_gate", "pauli_z_gate",
+            "hadamard_gate", "cnot_gate", "phase_evolution_engine", "conservation_verifier");
+
+    private QuantumCircuitGenerator() {
+    }
+
+    /**
+     * Names of the circuits this generator knows, in generator order
+     */
+    public static List<String> getNames() {
+        return NAMES;
+    }
+
+    /**
+     * Generate a circuit by name
+     * @return The circuit, or null if the name isn't one of {@link #getNames()}
+     */
+    public static Blueprint generate(String name) {
+        switch (name) {
+            case "state_preparation":
+                return generateStatePreparation();
+            case "pauli_x_gate":
+                return generatePauliX();
+            case "pauli_z_gate":
+                return generatePauliZ();
+            case "hadamard_gate":
+                return generateHadamard();
+            case "cnot_gate":
+                return generateCnot();
+            case "phase_evolution_engine":
+                return generatePhaseEngine(generateLookupTable(DEFAULT_STEPS));
+            case "conservation_verifier":
+                return generateConservationVerifier();
+            default:
+                return null;
+        }
+    }
+
+    // ========================================================================
+    // Mathematical foundations
+    // ========================================================================
+
+    /**
+     * Convert phase φ to discrete ALPHA/OMEGA signals that always sum to maxSignal
+     * @return {ALPHA, OMEGA}
+     */
+    public static int[] phaseToSignals(double phi, int maxSignal) {
+        double cos = Math.cos(phi);
+        // Math.rint rounds half to even, like Python's round()
+        int alpha = (int) Math.rint(maxSignal * (cos * cos));
+        return new int[] {alpha, maxSignal - alpha};
+    }
+
+    /**
+     * The phase lookup table for a full 2π rotation in the given number of steps
+     */
+    public static PhaseTable generateLookupTable(int steps) {
+        double[] phi = new double[steps];
+        int[] alpha = new int[steps];
+        int[] omega = new int[steps];
+        int[] chestItems = new int[steps];
+        boolean[] viviani = new boolean[steps];
+        for (int k = 0; k < steps; k++) {
+            phi[k] = k * Math.PI / (steps / 2);
+            int[] signals = phaseToSignals(phi[k], MAX_SIGNAL);
+            alpha[k] = signals[0];
+            omega[k] = signals[1];
+            // About four items per signal level in a single chest slot
+            chestItems[k] = alpha[k] * 4;
+            // Viviani crossings occur where cos²φ ≈ sin²φ ≈ 0.5
+            double cos = Math.cos(phi[k]);
+            viviani[k] = Math.abs(cos * cos - 0.5) < 0.1;
+        }
+        return new PhaseTable(MAX_SIGNAL, phi, alpha, omega, chestItems, viviani);
+    }
+
+    // ========================================================================
+    // Circuit generators
+    // ========================================================================
+
+    /**
+     * Prepares |0⟩ or |1⟩ from a lever: ON gives ALPHA=15, OFF gives OMEGA=15
+     */
+    public static Blueprint generateStatePreparation() {
+        BlueprintFile.Builder b = circuit("state_preparation", "Prepares basis states |0⟩ or |1⟩", 10, 3, 3);
+
+        b.add(0, 1, 1, "minecraft:lever[face=floor,facing=east]");
+        // ALPHA rail (lever to output)
+        for (int x = 1; x < 7; x++) {
+            b.add(x, 0, 1, "minecraft:redstone_wire");
+        }
+        // Inverter for OMEGA
+        b.add(1, 0, 0, "minecraft:stone");
+        b.add(1, 1, 0, "minecraft:redstone_torch[facing=up]");
+        for (int x = 2; x < 7; x++) {
+            b.add(x, 0, 0, "minecraft:redstone_wire");
+        }
+        // Output markers
+        b.add(7, 0, 1, "minecraft:green_stained_glass");
+        b.add(7, 0, 0, "minecraft:blue_stained_glass");
+        return b.build();
+    }
+
+    /**
+     * Pauli-X (NOT): swaps the ALPHA and OMEGA rails
+     */
+    public static Blueprint generatePauliX() {
+        BlueprintFile.Builder b = circuit("pauli_x_gate", "Pauli-X (NOT) gate - swaps ALPHA and OMEGA", 10, 4, 5);
+
+        for (int x = 0; x < 4; x++) {
+            b.add(x, 2, 4, "minecraft:redstone_wire");
+        }
+        for (int x = 0; x < 4; x++) {
+            b.add(x, 0, 0, "minecraft:redstone_wire");
+        }
+        // Crossover: ALPHA drops down, OMEGA rises up
+        b.add(4, 2, 4, "minecraft:stone");
+        b.add(4, 1, 4, "minecraft:redstone_torch[facing=down]");
+        b.add(4, 1, 2, "minecraft:redstone_wire");
+        b.add(5, 1, 2, "minecraft:redstone_wire");
+        b.add(4, 0, 0, "minecraft:stone");
+        b.add(4, 1, 0, "minecraft:redstone_torch[facing=up]");
+        for (int x = 5; x < 10; x++) {
+            b.add(x, 0, 0, "minecraft:redstone_wire");
+        }
+        for (int x = 5; x < 10; x++) {
+            b.add(x, 2, 4, "minecraft:redstone_wire");
+        }
+        return b.build();
+    }
+
+    /**
+     * Pauli-Z (phase flip): toggles the PHASE rail without touching ALPHA/OMEGA
+     */
+    public static Blueprint generatePauliZ() {
+        BlueprintFile.Builder b = circuit("pauli_z_gate", "Pauli-Z (phase flip) gate - toggles PHASE rail", 10, 3, 3);
+
+        for (int x = 0; x < 10; x++) {
+            b.add(x, 0, 2, "minecraft:redstone_wire");
+        }
+        for (int x = 0; x < 10; x++) {
+            b.add(x, 0, 1, comparator(x % 2 == 0 ? "east" : "west", "compare"));
+        }
+        // PHASE rail with inverter
+        for (int x = 0; x < 3; x++) {
+            b.add(x, 0, 0, "minecraft:redstone_wire");
+        }
+        b.add(3, 0, 0, "minecraft:stone");
+        b.add(3, 1, 0, "minecraft:redstone_torch");
+        for (int x = 4; x < 10; x++) {
+            b.add(x, 0, 0, "minecraft:redstone_wire");
+        }
+        return b.build();
+    }
+
+    /**
+     * Hadamard: fixed-signal chests for superposition plus a dropper measurement stage
+     */
+    public static Blueprint generateHadamard() {
+        BlueprintFile.Builder b = circuit("hadamard_gate",
+                "Hadamard gate - creates superposition, includes measurement", 15, 5, 10);
+
+        // Superposition stage: chests holding 32 and 28 items read as signals 8 and 7
+        b.add(5, 0, 3, "minecraft:chest");
+        b.add(6, 0, 3, comparator("east", "compare"));
+        b.add(9, 0, 3, "minecraft:chest");
+        b.add(8, 0, 3, comparator("west", "compare"));
+
+        // Measurement stage: dropper with a single item, triggered by a button
+        b.add(7, 2, 3, "minecraft:stone");
+        b.add(7, 1, 3, "minecraft:dropper[facing=down]");
+        b.add(7, 2, 4, "minecraft:stone");
+        b.add(7, 2, 3, "minecraft:stone_button[face=wall,facing=south]");
+        b.add(6, 0, 3, "minecraft:hopper[facing=down]");
+        b.add(8, 0, 3, "minecraft:hopper[facing=down]");
+        b.add(6, 0, 2, comparator("south", "compare"));
+        b.add(8, 0, 2, comparator("south", "compare"));
+        return b.build();
+    }
+
+    /**
+     * CNOT: the target's rails swap through pistons when the control is |1⟩
+     */
+    public static Blueprint generateCnot() {
+        BlueprintFile.Builder b = circuit("cnot_gate", "CNOT gate - entangles two qubits", 20, 6, 15);
+
+        // Control qubit rails
+        for (int x = 0; x < 20; x++) {
+            b.add(x, 4, 14, "minecraft:redstone_wire");
+            b.add(x, 4, 13, "minecraft:redstone_wire");
+        }
+        // Threshold detector producing the ENABLE signal
+        b.add(10, 4, 12, comparator("south", "compare"));
+        b.add(10, 4, 11, "minecraft:stone");
+        b.add(10, 4, 10, "minecraft:redstone_wire");
+
+        // Target qubit input rails
+        for (int x = 0; x < 8; x++) {
+            b.add(x, 0, 7, "minecraft:redstone_wire");
+            b.add(x, 0, 0, "minecraft:redstone_wire");
+        }
+        // Piston swap
+        b.add(8, 0, 7, "minecraft:sticky_piston[facing=south]");
+        b.add(8, 0, 0, "minecraft:sticky_piston[facing=north]");
+
+        // ENABLE routed down to the pistons
+        for (int y = 3; y >= 0; y--) {
+            b.add(10, y, 10, "minecraft:redstone_wire");
+        }
+        b.add(9, 0, 10, "minecraft:redstone_wire");
+        b.add(8, 0, 10, "minecraft:redstone_wire");
+
+        // Target qubit output rails
+        for (int x = 12; x < 20; x++) {
+            b.add(x, 0, 7, "minecraft:redstone_wire");
+            b.add(x, 0, 0, "minecraft:redstone_wire");
+        }
+        return b.build();
+    }
+
+    /**
+     * Phase evolution engine: a hopper ring counter stepping through the lookup table
+     *
+     * The ring's layout is fixed, as in the Python generator, at one hopper per step of
+     * a {@link #DEFAULT_STEPS}-step table.
+     * @param table Lookup table with {@link #DEFAULT_STEPS} steps
+     * @throws IllegalArgumentException For a table with any other number of steps
+     */
+    public static Blueprint generatePhaseEngine(PhaseTable table) {
+        if (table.getSteps() != DEFAULT_STEPS) {
+            throw new IllegalArgumentException("The phase engine's ring counter has " + DEFAULT_STEPS
+                    + " hoppers, not " + table.getSteps());
+        }
+        BlueprintFile.Builder b = circuit("phase_evolution_engine",
+                "16-step phase evolution with cos²/sin² lookup", 60, 4, 20);
+
+        // Ring counter: 16 hoppers around a square, each read by a comparator
+        int[][] hoppers = {
+                {0, 0}, {2, 0}, {4, 0}, {6, 0},
+                {6, 2}, {6, 4}, {6, 6},
+                {6, 8}, {4, 8}, {2, 8}, {0, 8},
+                {0, 6}, {0, 4}, {0, 2},
+                {2, 4}, {4, 4}
+        };
+        for (int[] hopper : hoppers) {
+            b.add(hopper[0] + 10, 0, hopper[1] + 10, "minecraft:hopper[facing=east]");
+            b.add(hopper[0] + 10, 0, hopper[1] + 11, comparator("south", "compare"));
+        }
+
+        // One chest per step, eight to a row, each read by a comparator
+        for (int step = 0; step < table.getSteps(); step++) {
+            int chestX = 20 + (step % 8) * 2;
+            int chestZ = 10 + (step / 8) * 4;
+            b.add(chestX, 0, chestZ, "minecraft:chest");
+            b.add(chestX + 1, 0, chestZ, comparator("east", "compare"));
+        }
+
+        // ALPHA and OMEGA output rails
+        for (int x = 36; x < 40; x++) {
+            b.add(x, 0, 12, "minecraft:redstone_wire");
+        }
+        for (int x = 36; x < 40; x++) {
+            b.add(x, 0, 14, "minecraft:redstone_wire");
+        }
+
+        // Signal level lamps
+        for (int i = 0; i < MAX_SIGNAL; i++) {
+            b.add(40 + i, 1, 12, "minecraft:redstone_lamp");
+            b.add(40 + i, 1, 14, "minecraft:redstone_lamp");
+        }
+        return b.build();
+    }
+
+    /**
+     * Conservation verifier: lights when ALPHA + OMEGA = 15
+     */
+    public static Blueprint generateConservationVerifier() {
+        BlueprintFile.Builder b = circuit("conservation_verifier", "Verifies ALPHA + OMEGA = 15 constraint", 10, 3, 5);
+
+        // ALPHA and OMEGA inputs
+        b.add(0, 0, 2, "minecraft:redstone_wire");
+        b.add(1, 0, 2, "minecraft:redstone_wire");
+        b.add(0, 0, 0, "minecraft:redstone_wire");
+        b.add(1, 0, 0, "minecraft:redstone_wire");
+
+        // 15 - OMEGA by comparator subtraction from a fixed signal 15
+        b.add(2, 0, 4, "minecraft:redstone_block");
+        b.add(2, 0, 1, comparator("east", "subtract"));
+        b.add(2, 0, 0, "minecraft:redstone_wire");
+        b.add(2, 0, 2, "minecraft:redstone_wire");
+
+        // Compare with ALPHA; equal gives 0, inverted into a positive signal
+        b.add(4, 0, 1, comparator("east", "compare"));
+        b.add(6, 0, 1, "minecraft:stone");
+        b.add(6, 1, 1, "minecraft:redstone_torch");
+        b.add(7, 0, 1, "minecraft:redstone_wire");
+
+        // Status lamps
+        b.add(8, 0, 1, "minecraft:lime_stained_glass");
+        b.add(8, 1, 1, "minecraft:redstone_lamp");
+        return b.build();
+    }
+
+    private static BlueprintFile.Builder circuit(String name, String description, int sizeX, int sizeY, int sizeZ) {
+        BlueprintFile.Builder builder = new BlueprintFile.Builder(name, description);
+        builder.size(sizeX, sizeY, sizeZ);
+        return builder;
+    }
+
+    private static String comparator(String facing, String mode) {
+        return "minecraft:comparator[facing=" + facing + ",mode=" + mode + "]";
+    }
+
+    /**
+     * Phase evolution steps: the ALPHA/OMEGA signal pair for each phase angle
+     */
+    public static class PhaseTable {
+        private final int maxSignal;
+        private final double[] phi;
+        private final int[] alpha;
+        private final int[] omega;
+        private final int[] chestItems;
+        private final boolean[] viviani;
+
+        PhaseTable(int maxSignal, double[] phi, int[] alpha, int[] omega, int[] chestItems, boolean[] viviani) {
+            this.maxSignal = maxSignal;
+            this.phi = phi;
+            this.alpha = alpha;
+            this.omega = omega;
+            this.chestItems = chestItems;
+            this.viviani = viviani;
+        }
+
+        public int getSteps() {
+            return alpha.length;
+        }
+
+        public int getMaxSignal() {
+            return maxSignal;
+        }
+
+        public double getPhi(int step) {
+            return phi[step];
+        }
+
+        public int getAlpha(int step) {
+            return alpha[step];
+        }
+
+        public int getOmega(int step) {
+            return omega[step];
+        }
+
+        /**
+         * Items a chest needs for a comparator to read this step's ALPHA signal
+         */
+        public int getChestItems(int step) {
+            return chestItems[step];
+        }
+
+        /**
+         * Whether this step is a Viviani crossing (cos²φ ≈ sin²φ)
+         */
+        public boolean isViviani(int step) {
+            return viviani[step];
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.claudenpc;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission controller for Claude API calls
+ *
+ * Enforces performance.rate-limit globally and performance.player-rate-limit per player
+ * using lock-free token buckets. When only the global budget is exhausted, requests wait
+ * in a bounded FIFO queue; anything beyond that fails fast with {@link RateLimitedException}
+ * so the player can be told the NPC is busy instead of the API answering with a 429.
+ */
+public class RateLimiter {
+
+    private final ClaudeNPC plugin;
+
+    // Replaced by reload()
+    private volatile TokenBucket globalBucket;
+    private volatile int globalRatePerMinute;
+    private volatile int playerRatePerMinute;
+    private volatile int maxQueueSize;
+    private volatile long maxWaitNanos;
+
+    private final Map<UUID, TokenBucket> playerBuckets = new ConcurrentHashMap<>();
+    private final Queue<PendingRequest> waitQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler;
+
+    // Counters for /claudenpc status
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong rejectedPlayer = new AtomicLong();
+    private final AtomicLong rejectedGlobal = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    public RateLimiter(ClaudeNPC plugin) {
+        this.plugin = plugin;
+        reload();
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ClaudeNPC-RateLimiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Full buckets carry no state worth keeping, so drop them once a minute
+        scheduler.scheduleAtFixedRate(this::pruneIdleBuckets, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Re-read the limits from the config
+     *
+     * A bucket only starts over when its rate changed, so a reload doesn't hand out a
+     * fresh burst. Requests already waiting keep their place and their deadline.
+     */
+    public void reload() {
+        int globalRate = plugin.getConfig().getInt("performance.rate-limit", 60);
+        if (globalBucket == null || globalRate != globalRatePerMinute) {
+            globalBucket = new TokenBucket(globalRate);
+            globalRatePerMinute = globalRate;
+        }
+
+        int playerRate = plugin.getConfig().getInt("performance.player-rate-limit", 10);
+        if (playerRate != playerRatePerMinute) {
+            playerRatePerMinute = playerRate;
+            playerBuckets.clear();
+        }
+
+        maxQueueSize = plugin.getConfig().getInt("performance.rate-limit-queue-size", 20);
+        maxWaitNanos = TimeUnit.SECONDS.toNanos(plugin.getConfig().getInt("performance.rate-limit-max-wait", 10));
+    }
+
+    /**
+     * Acquire permission to make one API call for a player
+     * @param playerUUID Player making the request, or null for a background call that only
+     *                   counts against the global limit
+     * @return Future that completes once the call may proceed, or fails with RateLimitedException
+     */
+    public CompletableFuture<Void> acquire(UUID playerUUID) {
+        TokenBucket playerBucket = null;
+        if (playerUUID != null && playerRatePerMinute > 0) {
+            playerBucket = playerBuckets.computeIfAbsent(playerUUID, k -> new TokenBucket(playerRatePerMinute));
+            if (!playerBucket.tryAcquire()) {
+                rejectedPlayer.incrementAndGet();
+                return CompletableFuture.failedFuture(new RateLimitedException("Player rate limit exceeded"));
+            }
+        }
+
+        // Skip the queue only when nobody is already waiting, to keep admission FIFO
+        if (waitQueue.isEmpty() && globalBucket.tryAcquire()) {
+            admitted.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (queueSize.incrementAndGet() > maxQueueSize) {
+            queueSize.decrementAndGet();
+            rejectedGlobal.incrementAndGet();
+            // The call never happens, so it shouldn't count against the player
+            if (playerBucket != null) {
+                playerBucket.refund();
+            }
+            return CompletableFuture.failedFuture(new RateLimitedException("Rate limit queue is full"));
+        }
+
+        PendingRequest pending = new PendingRequest(System.nanoTime() + maxWaitNanos, playerBucket);
+        waitQueue.add(pending);
+        queued.incrementAndGet();
+        scheduleDrain(0);
+        return pending.future;
+    }
+
+    /**
+     * Admit queued requests while the global bucket has tokens
+     *
+     * When it runs out, the next drain is due at the next token or when the head request
+     * times out, whichever comes first - the head has the earliest deadline.
+     */
+    private void drain() {
+        drainScheduled.set(false);
+
+        PendingRequest pending;
+        while ((pending = waitQueue.peek()) != null) {
+            long now = System.nanoTime();
+            if (now > pending.deadline) {
+                removeHead(pending);
+                timedOut.incrementAndGet();
+                fail(pending, "Timed out waiting for a free slot");
+                continue;
+            }
+
+            if (!globalBucket.tryAcquire()) {
+                scheduleDrain(Math.min(globalBucket.nanosUntilAvailable(), pending.deadline - now + 1));
+                return;
+            }
+
+            removeHead(pending);
+            admitted.incrementAndGet();
+            pending.future.complete(null);
+        }
+    }
+
+    private void removeHead(PendingRequest pending) {
+        if (waitQueue.remove(pending)) {
+            queueSize.decrementAndGet();
+        }
+    }
+
+    /**
+     * Fail a queued request; the call never happens, so the player gets their token back
+     */
+    private void fail(PendingRequest pending, String reason) {
+        if (pending.playerBucket != null) {
+            pending.playerBucket.refund();
+        }
+        pending.future.completeExceptionally(new RateLimitedException(reason));
+    }
+
+    private void scheduleDrain(long delayNanos) {
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                scheduler.schedule(this::drain, Math.max(0, delayNanos), TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // Shutting down - shutdown() fails whatever is left in the queue
+                drainScheduled.set(false);
+            }
+        }
+    }
+
+    private void pruneIdleBuckets() {
+        playerBuckets.values().removeIf(TokenBucket::isFull);
+    }
+
+    /**
+     * Stop the limiter and fail anything still waiting
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+
+        PendingRequest pending;
+        while ((pending = waitQueue.poll()) != null) {
+            queueSize.decrementAndGet();
+            fail(pending, "Plugin is shutting down");
+        }
+    }
+
+    public long getAdmitted() {
+        return admitted.get();
+    }
+
+    public long getQueued() {
+        return queued.get();
+    }
+
+    public int getQueueDepth() {
+        return queueSize.get();
+    }
+
+    public long getRejectedPlayer() {
+        return rejectedPlayer.get();
+    }
+
+    public long getRejectedGlobal() {
+        return rejectedGlobal.get();
+    }
+
+    public long getTimedOut() {
+        return timedOut.get();
+    }
+
+    /**
+     * Lock-free token bucket
+     *
+     * Implemented as a generic cell rate algorithm: instead of a token count it stores the
+     * theoretical arrival time of the next request, which a single CAS can advance. Holds up
+     * to ten seconds' worth of tokens as burst capacity.
+     */
+    static class TokenBucket {
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final AtomicLong theoreticalArrival;
+
+        TokenBucket(int ratePerMinute) {
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, ratePerMinute);
+            int burst = Math.max(1, ratePerMinute / 6);
+            this.burstNanos = intervalNanos * burst;
+            this.theoreticalArrival = new AtomicLong(System.nanoTime());
+        }
+
+        boolean tryAcquire() {
+            while (true) {
+                long now = System.nanoTime();
+                long tat = theoreticalArrival.get();
+                long next = Math.max(tat, now) + intervalNanos;
+                if (next - now > burstNanos) {
+                    return false;
+                }
+                if (theoreticalArrival.compareAndSet(tat, next)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Give back a token taken by tryAcquire
+         */
+        void refund() {
+            theoreticalArrival.addAndGet(-intervalNanos);
+        }
+
+        long nanosUntilAvailable() {
+            long wait = theoreticalArrival.get() + intervalNanos - burstNanos - System.nanoTime();
+            return Math.max(0, wait);
+        }
+
+        boolean isFull() {
+            return theoreticalArrival.get() <= System.nanoTime();
+        }
+    }
+
+    private static class PendingRequest {
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private final long deadline;
+        // Bucket the player's token came from, or null without a per-player limit
+        private final TokenBucket playerBucket;
+
+        PendingRequest(long deadline, TokenBucket playerBucket) {
+            this.deadline = deadline;
+            this.playerBucket = playerBucket;
+        }
+    }
+
+    /**
+     * Thrown when a request is refused by the rate limiter
+     */
+    public static class RateLimitedException extends RuntimeException {
+        public RateLimitedException(String message) {
+            super(message);
+        }
+    }
+}
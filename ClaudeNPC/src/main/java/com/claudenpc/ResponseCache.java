@@ -0,0 +1,208 @@
+package com.claudenpc;
+
+import com.claudenpc.ClaudeAPIClient.Message;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches Claude responses for identical questions (performance.cache-duration)
+ *
+ * Entries are keyed by model, system prompt and the normalized tail of the conversation,
+ * expire after the configured duration and are evicted least-recently-used once the cache
+ * is full. Concurrent misses for the same key share a single API call.
+ */
+public class ResponseCache {
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final int contextMessages;
+
+    private final Map<String, CachedResponse> entries;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ResponseCache(ClaudeNPC plugin) {
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(plugin.getConfig().getInt("performance.cache-duration", 5));
+        this.maxEntries = plugin.getConfig().getInt("performance.cache-size", 500);
+        this.contextMessages = Math.max(1, plugin.getConfig().getInt("performance.cache-context-messages", 3));
+
+        // Access-ordered, so the eldest entry is always the least recently used
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Check if caching is turned on
+     */
+    public boolean isEnabled() {
+        return ttlMillis > 0 && maxEntries > 0;
+    }
+
+    /**
+     * Build the cache key for a request
+     * @param model Claude model name
+     * @param systemPrompt NPC's personality/system prompt
+     * @param messages Conversation so far, ending with the player's new message
+     */
+    public String keyFor(String model, String systemPrompt, List<Message> messages) {
+        StringBuilder key = new StringBuilder();
+        key.append(model).append('\0').append(systemPrompt).append('\0');
+
+        // Only the last few messages matter - older history rarely changes the answer
+        for (int i = Math.max(0, messages.size() - contextMessages); i < messages.size(); i++) {
+            Message msg = messages.get(i);
+            key.append(msg.getRole()).append(':').append(normalize(msg.getContent())).append('\0');
+        }
+
+        return sha256(key.toString());
+    }
+
+    /**
+     * Get a cached response, or load it with a single call shared by all concurrent callers
+     * @param key Key from {@link #keyFor}
+     * @param loader Makes the API call on a miss
+     * @return CompletableFuture with the response
+     */
+    public CompletableFuture<String> get(String key, Supplier<CompletableFuture<String>> loader) {
+        String cached = lookup(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return existing;
+        }
+
+        misses.incrementAndGet();
+        CompletableFuture<String> load;
+        try {
+            load = loader.get();
+        } catch (RuntimeException e) {
+            // Don't leave later callers waiting on a load that never started
+            inFlight.remove(key, pending);
+            pending.completeExceptionally(e);
+            return pending;
+        }
+        load.whenComplete((response, error) -> {
+            if (error == null) {
+                store(key, response);
+            }
+            inFlight.remove(key, pending);
+
+            if (error != null) {
+                pending.completeExceptionally(error);
+            } else {
+                pending.complete(response);
+            }
+        });
+        return pending;
+    }
+
+    private synchronized String lookup(String key) {
+        CachedResponse entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.text;
+    }
+
+    private synchronized void store(String key, String text) {
+        entries.put(key, new CachedResponse(text, System.currentTimeMillis() + ttlMillis));
+    }
+
+    /**
+     * Drop all cached responses
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Normalize a message so trivially different phrasings share a key
+     */
+    private static String normalize(String text) {
+        String normalized = text.toLowerCase().trim().replaceAll("\\s+", " ");
+
+        // "where is spawn?" and "Where is spawn" are the same question
+        int end = normalized.length();
+        while (end > 0 && ".!?".indexOf(normalized.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return normalized.substring(0, end);
+    }
+
+    private static String sha256(String input) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(input.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class CachedResponse {
+        private final String text;
+        private final long expiresAt;
+
+        CachedResponse(String text, long expiresAt) {
+            this.text = text;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.claudenpc;
+
+import java.util.function.Consumer;
+
+/**
+ * Buffers streamed text deltas and releases them as sentence-sized chunks
+ *
+ * Claude streams a few characters at a time; sending each delta straight to
+ * chat would spam the player with fragments. A chunk is released once the
+ * buffer ends a sentence (or a line), or grows past the soft length limit.
+ */
+public class SentenceChunker {
+
+    private static final int DEFAULT_MAX_CHUNK = 200;
+
+    private final Consumer<String> sink;
+    private final int maxChunkLength;
+    private final StringBuilder buffer = new StringBuilder();
+
+    public SentenceChunker(Consumer<String> sink) {
+        this(sink, DEFAULT_MAX_CHUNK);
+    }
+
+    public SentenceChunker(Consumer<String> sink, int maxChunkLength) {
+        this.sink = sink;
+        this.maxChunkLength = maxChunkLength;
+    }
+
+    /**
+     * Append a text delta, emitting any complete sentences
+     */
+    public void append(String delta) {
+        buffer.append(delta);
+
+        int boundary;
+        while ((boundary = findBoundary()) > 0) {
+            emit(boundary);
+        }
+
+        // No sentence end in sight - break on the last space instead, as often as needed
+        // for a long append such as a replayed cached reply
+        while (buffer.length() > maxChunkLength) {
+            int space = buffer.lastIndexOf(" ", maxChunkLength);
+            emit(space > 0 ? space + 1 : maxChunkLength);
+        }
+    }
+
+    /**
+     * Emit whatever text is left over once the stream has ended
+     */
+    public void flush() {
+        if (buffer.length() > 0) {
+            emit(buffer.length());
+        }
+    }
+
+    /**
+     * Find the end of the first complete sentence, or -1 if there is none yet
+     */
+    private int findBoundary() {
+        for (int i = 0; i < buffer.length() - 1; i++) {
+            char c = buffer.charAt(i);
+            if (c == '\n') {
+                return i + 1;
+            }
+            if ((c == '.' || c == '!' || c == '?') && Character.isWhitespace(buffer.charAt(i + 1))) {
+                return i + 2;
+            }
+        }
+        return -1;
+    }
+
+    private void emit(int end) {
+        String chunk = buffer.substring(0, end).trim();
+        buffer.delete(0, end);
+        if (!chunk.isEmpty()) {
+            sink.accept(chunk);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.claudenpc;
+
+import net.citizensnpcs.api.npc.NPC;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of active player-NPC conversations
+ *
+ * Safe to use from both the main thread (right-click, quit, despawn) and the async
+ * chat thread. Keeps a reverse index from NPC to the players talking to it, so an NPC's
+ * talkers can be counted, capped and messaged without scanning every session.
+ */
+public class SessionRegistry {
+
+    private final Map<UUID, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<UUID>> talkersByNpc = new ConcurrentHashMap<>();
+
+    /**
+     * Start a conversation, ending any conversation the player had with another NPC
+     * @param playerUUID Player starting the conversation
+     * @param npc NPC being talked to
+     * @param maxTalkers Max players per NPC (0 for no limit)
+     * @return The session the player ended by switching NPCs, or null
+     * @throws NPCBusyException if the NPC already has maxTalkers players
+     */
+    public Session start(UUID playerUUID, NPC npc, int maxTalkers) throws NPCBusyException {
+        Session existing = sessions.get(playerUUID);
+        if (existing != null && existing.npc.getUniqueId().equals(npc.getUniqueId())) {
+            existing.touch();
+            return null;
+        }
+
+        // Claim a talker slot atomically so two players can't both take the last one
+        boolean[] admitted = {false};
+        talkersByNpc.compute(npc.getUniqueId(), (k, talkers) -> {
+            if (talkers == null) {
+                talkers = ConcurrentHashMap.newKeySet();
+            }
+            if (maxTalkers <= 0 || talkers.size() < maxTalkers) {
+                talkers.add(playerUUID);
+                admitted[0] = true;
+            }
+            return talkers;
+        });
+        if (!admitted[0]) {
+            throw new NPCBusyException();
+        }
+
+        Session previous = sessions.put(playerUUID, new Session(playerUUID, npc));
+        if (previous != null) {
+            removeTalker(previous);
+        }
+        return previous;
+    }
+
+    /**
+     * Get a player's active session, marking it as used
+     */
+    public Session get(UUID playerUUID) {
+        Session session = sessions.get(playerUUID);
+        if (session != null) {
+            session.touch();
+        }
+        return session;
+    }
+
+    /**
+     * End a player's conversation
+     * @return The ended session, or null if the player wasn't talking to anyone
+     */
+    public Session end(UUID playerUUID) {
+        Session session = sessions.remove(playerUUID);
+        if (session != null) {
+            removeTalker(session);
+        }
+        return session;
+    }
+
+    /**
+     * End every conversation with an NPC (it despawned or was removed)
+     * @return Players whose conversation ended
+     */
+    public Set<UUID> endAll(UUID npcUUID) {
+        Set<UUID> talkers = talkersByNpc.remove(npcUUID);
+        if (talkers == null) {
+            return Collections.emptySet();
+        }
+        for (UUID playerUUID : talkers) {
+            sessions.remove(playerUUID);
+        }
+        return talkers;
+    }
+
+    /**
+     * End conversations that have been idle too long
+     * @return The expired sessions
+     */
+    public List<Session> expireIdle(long timeoutMillis) {
+        long cutoff = System.currentTimeMillis() - timeoutMillis;
+        List<Session> expired = new ArrayList<>();
+        for (Session session : sessions.values()) {
+            if (session.lastActivity < cutoff && sessions.remove(session.playerUUID, session)) {
+                removeTalker(session);
+                expired.add(session);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Get the players currently talking to an NPC
+     */
+    public Set<UUID> getTalkers(UUID npcUUID) {
+        Set<UUID> talkers = talkersByNpc.get(npcUUID);
+        return talkers != null ? Collections.unmodifiableSet(talkers) : Collections.emptySet();
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private void removeTalker(Session session) {
+        talkersByNpc.computeIfPresent(session.npc.getUniqueId(), (k, talkers) -> {
+            talkers.remove(session.playerUUID);
+            return talkers.isEmpty() ? null : talkers;
+        });
+    }
+
+    /**
+     * A player's conversation with one NPC
+     */
+    public static class Session {
+        private final UUID playerUUID;
+        private final NPC npc;
+        private volatile long lastActivity;
+
+        Session(UUID playerUUID, NPC npc) {
+            this.playerUUID = playerUUID;
+            this.npc = npc;
+            this.lastActivity = System.currentTimeMillis();
+        }
+
+        void touch() {
+            lastActivity = System.currentTimeMillis();
+        }
+
+        public UUID getPlayerUUID() {
+            return playerUUID;
+        }
+
+        public NPC getNPC() {
+            return npc;
+        }
+    }
+
+    /**
+     * Thrown when an NPC already has as many talkers as allowed
+     */
+    public static class NPCBusyException extends Exception {
+        public NPCBusyException() {
+            super("NPC has too many players talking to it");
+        }
+    }
+}
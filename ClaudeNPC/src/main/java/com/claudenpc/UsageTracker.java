@@ -0,0 +1,75 @@
+package com.claudenpc;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks token usage reported by the Claude API, per NPC
+ *
+ * Keeps the prompt cache figures (cache_read_input_tokens / cache_creation_input_tokens)
+ * next to the plain input and output counts so the savings from caching are visible.
+ */
+public class UsageTracker {
+
+    /** Tag used for calls that don't belong to an NPC */
+    public static final String UNTAGGED = "other";
+
+    private final Map<String, Totals> totals = new ConcurrentHashMap<>();
+
+    /**
+     * Add the counts from a response's or stream event's usage object
+     * @param tag NPC the call was made for, or null
+     * @param cacheRead cache_read_input_tokens
+     * @param cacheWrite cache_creation_input_tokens
+     */
+    public void record(String tag, long input, long output, long cacheRead, long cacheWrite) {
+        Totals npcTotals = totals.computeIfAbsent(tag != null ? tag : UNTAGGED, k -> new Totals());
+        npcTotals.inputTokens.add(input);
+        npcTotals.outputTokens.add(output);
+        npcTotals.cacheReadTokens.add(cacheRead);
+        npcTotals.cacheWriteTokens.add(cacheWrite);
+    }
+
+    /**
+     * Get usage totals keyed by tag
+     */
+    public Map<String, Totals> getTotals() {
+        return Collections.unmodifiableMap(totals);
+    }
+
+    /**
+     * Running token counts for one tag
+     */
+    public static class Totals {
+        private final LongAdder inputTokens = new LongAdder();
+        private final LongAdder outputTokens = new LongAdder();
+        private final LongAdder cacheReadTokens = new LongAdder();
+        private final LongAdder cacheWriteTokens = new LongAdder();
+
+        public long getInputTokens() {
+            return inputTokens.sum();
+        }
+
+        public long getOutputTokens() {
+            return outputTokens.sum();
+        }
+
+        public long getCacheReadTokens() {
+            return cacheReadTokens.sum();
+        }
+
+        public long getCacheWriteTokens() {
+            return cacheWriteTokens.sum();
+        }
+
+        /**
+         * Share of prompt tokens that were served from the cache, 0-100
+         */
+        public long getCacheHitPercent() {
+            long prompt = getInputTokens() + getCacheReadTokens() + getCacheWriteTokens();
+            return prompt > 0 ? getCacheReadTokens() * 100 / prompt : 0;
+        }
+    }
+}
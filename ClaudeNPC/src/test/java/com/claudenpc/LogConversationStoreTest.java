@@ -0,0 +1,168 @@
+package com.claudenpc;
+
+import com.claudenpc.ClaudeAPIClient.Message;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Each test writes through one store, closes it, and reads the log back with a fresh one
+ */
+class LogConversationStoreTest {
+
+    private static final Logger LOGGER = Logger.getLogger(LogConversationStoreTest.class.getName());
+    private static final String KEY = "player:npc";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void messagesSurviveReopen() throws Exception {
+        LogConversationStore store = open(10);
+        store.append(KEY, new Message("user", "hello"));
+        store.append(KEY, new Message("assistant", "hi there"));
+        store.append("other:npc", new Message("user", "someone else"));
+        store.close();
+
+        store = open(10);
+        assertEquals(Arrays.asList("user:hello", "assistant:hi there"), load(store, KEY));
+        assertEquals(Collections.singletonList("user:someone else"), load(store, "other:npc"));
+        assertEquals(Collections.emptyList(), load(store, "missing:npc"));
+        store.close();
+    }
+
+    @Test
+    void tornWriteIsTruncated() throws Exception {
+        LogConversationStore store = open(10);
+        store.append(KEY, new Message("user", "a"));
+        store.append(KEY, new Message("assistant", "b"));
+        store.close();
+        long size = Files.size(logFile());
+
+        // A header promising more payload than made it to disk
+        ByteBuffer torn = ByteBuffer.allocate(11).putInt(100).putInt(0).put(new byte[3]);
+        Files.write(logFile(), torn.array(), StandardOpenOption.APPEND);
+
+        store = open(10);
+        assertEquals(Arrays.asList("user:a", "assistant:b"), load(store, KEY));
+        assertEquals(size, Files.size(logFile()), "torn tail cut off");
+
+        // New records go where the torn one was, and read back
+        store.append(KEY, new Message("user", "c"));
+        store.close();
+        store = open(10);
+        assertEquals(Arrays.asList("user:a", "assistant:b", "user:c"), load(store, KEY));
+        store.close();
+    }
+
+    @Test
+    void recordWithBadChecksumIsDiscarded() throws Exception {
+        LogConversationStore store = open(10);
+        store.append(KEY, new Message("user", "a"));
+        store.append(KEY, new Message("assistant", "b"));
+        store.append(KEY, new Message("user", "c"));
+        store.close();
+        long size = Files.size(logFile());
+
+        // Flip the last content byte of the last record
+        try (RandomAccessFile file = new RandomAccessFile(logFile().toFile(), "rw")) {
+            file.seek(size - 1);
+            int last = file.read();
+            file.seek(size - 1);
+            file.write(last ^ 0xff);
+        }
+
+        store = open(10);
+        assertEquals(Arrays.asList("user:a", "assistant:b"), load(store, KEY));
+        assertTrue(Files.size(logFile()) < size, "damaged record cut off");
+        store.close();
+    }
+
+    @Test
+    void summaryReplacesEarlierMessages() throws Exception {
+        LogConversationStore store = open(10);
+        store.append(KEY, new Message("user", "a"));
+        store.append(KEY, new Message("assistant", "b"));
+        store.saveSummary(KEY, "talked about a");
+        store.append(KEY, new Message("user", "c"));
+        store.append(KEY, new Message("assistant", "d"));
+        store.close();
+
+        store = open(10);
+        assertEquals(Arrays.asList("summary:talked about a", "user:c", "assistant:d"), load(store, KEY));
+        store.close();
+    }
+
+    @Test
+    void deleteRemovesConversation() throws Exception {
+        LogConversationStore store = open(10);
+        store.append(KEY, new Message("user", "a"));
+        store.saveSummary(KEY, "s");
+        store.append("other:npc", new Message("user", "b"));
+        store.delete(KEY);
+        store.close();
+
+        store = open(10);
+        assertEquals(Collections.emptyList(), load(store, KEY));
+        assertEquals(Collections.singletonList("user:b"), load(store, "other:npc"));
+        store.close();
+    }
+
+    @Test
+    void compactionKeepsSummaryAndNewestMessages() throws Exception {
+        // One summary and 999 appends reach the 1000 records that allow compaction
+        LogConversationStore store = open(2);
+        store.saveSummary(KEY, "the story so far");
+        for (int i = 0; i < 999; i++) {
+            store.append(KEY, new Message(i % 2 == 0 ? "user" : "assistant", "message " + i));
+        }
+        List<String> expected = Arrays.asList("summary:the story so far", "assistant:message 997", "user:message 998");
+        assertEquals(expected, load(store, KEY));
+        store.close();
+
+        // Only the three live records are left, swapped in over the old log
+        assertTrue(Files.size(logFile()) < 200, "log was compacted: " + Files.size(logFile()) + " bytes");
+        assertFalse(Files.exists(directory.resolve("conversations.log.compact")));
+
+        store = open(2);
+        assertEquals(expected, load(store, KEY));
+        store.append(KEY, new Message("user", "after compaction"));
+        store.close();
+
+        store = open(2);
+        assertEquals(Arrays.asList("summary:the story so far", "user:message 998", "user:after compaction"),
+                load(store, KEY));
+        store.close();
+    }
+
+    private LogConversationStore open(int maxMessages) {
+        return new LogConversationStore(LOGGER, directory, maxMessages, 1000, 3.0);
+    }
+
+    private Path logFile() {
+        return directory.resolve("conversations.log");
+    }
+
+    private static List<String> load(LogConversationStore store, String key) throws Exception {
+        List<String> messages = new ArrayList<>();
+        for (Message message : store.load(key).get(10, TimeUnit.SECONDS)) {
+            messages.add(message.getRole() + ":" + message.getContent());
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,105 @@
+package com.claudenpc;
+
+import com.claudenpc.ClaudeAPIClient.Message;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MessageBufferTest {
+
+    @Test
+    void addEvictsOldestOnceFull() {
+        MessageBuffer buffer = new MessageBuffer(3);
+        List<String> evicted = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Message old = buffer.add(message("m" + i));
+            if (i < 3) {
+                assertNull(old, "evicted before full");
+            } else {
+                evicted.add(old.getContent());
+            }
+        }
+
+        assertEquals(Arrays.asList("m0", "m1"), evicted);
+        assertEquals(Arrays.asList("m2", "m3", "m4"), contents(buffer.snapshot()));
+    }
+
+    @Test
+    void snapshotsSurviveLaterWrites() {
+        // Enough appends to move the window to a fresh array several times
+        MessageBuffer buffer = new MessageBuffer(3);
+        List<List<Message>> snapshots = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            buffer.add(message("m" + i));
+            snapshots.add(buffer.snapshot());
+        }
+
+        for (int i = 0; i < 20; i++) {
+            List<String> expected = new ArrayList<>();
+            for (int j = Math.max(0, i - 2); j <= i; j++) {
+                expected.add("m" + j);
+            }
+            assertEquals(expected, contents(snapshots.get(i)), "snapshot " + i);
+        }
+    }
+
+    @Test
+    void prependKeepsNewestThatFit() {
+        MessageBuffer buffer = new MessageBuffer(4);
+        buffer.add(message("a"));
+        buffer.add(message("b"));
+
+        List<Message> dropped = buffer.prepend(Arrays.asList(message("x"), message("y"), message("z")));
+
+        assertEquals(Collections.singletonList("x"), contents(dropped));
+        assertEquals(Arrays.asList("y", "z", "a", "b"), contents(buffer.snapshot()));
+
+        // Appends after a prepend still evict from the front
+        assertEquals("y", buffer.add(message("c")).getContent());
+        assertEquals(Arrays.asList("z", "a", "b", "c"), contents(buffer.snapshot()));
+    }
+
+    @Test
+    void prependOntoFullBufferDropsAllOlder() {
+        MessageBuffer buffer = new MessageBuffer(2);
+        buffer.add(message("a"));
+        buffer.add(message("b"));
+
+        List<Message> dropped = buffer.prepend(Arrays.asList(message("x"), message("y")));
+
+        assertEquals(Arrays.asList("x", "y"), contents(dropped));
+        assertEquals(Arrays.asList("a", "b"), contents(buffer.snapshot()));
+    }
+
+    @Test
+    void dropOldest() {
+        MessageBuffer buffer = new MessageBuffer(4);
+        for (String content : Arrays.asList("a", "b", "c")) {
+            buffer.add(message(content));
+        }
+
+        buffer.dropOldest(2);
+        assertEquals(Collections.singletonList("c"), contents(buffer.snapshot()));
+
+        buffer.dropOldest(5);
+        assertEquals(0, buffer.size());
+    }
+
+    private static Message message(String content) {
+        return new Message("user", content);
+    }
+
+    private static List<String> contents(List<Message> messages) {
+        List<String> contents = new ArrayList<>();
+        for (Message message : messages) {
+            contents.add(message.getContent());
+        }
+        return contents;
+    }
+}
@@ -0,0 +1,97 @@
+package com.claudenpc;
+
+import com.google.gson.JsonParser;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessagesJsonTest {
+
+    @Test
+    void writeStringEscapesControlCharacters() throws IOException {
+        assertEquals("\"a\\u0001b\\u001f\"", write("a\u0001b\u001f"));
+        assertEquals("\"\\b\\t\\n\\f\\r\"", write("\b\t\n\f\r"));
+        assertEquals("\"say \\\"hi\\\" \\\\o/\"", write("say \"hi\" \\o/"));
+        assertEquals("null", write(null));
+    }
+
+    @Test
+    void writeStringRoundTrips() throws IOException {
+        StringBuilder all = new StringBuilder("plain, \u00e9, \u2603, \uD83D\uDE00 ");
+        for (char c = 0; c < 0x20; c++) {
+            all.append(c);
+        }
+        all.append("\"\\\u007f end");
+        String value = all.toString();
+
+        assertEquals(value, JsonParser.parseString(write(value)).getAsString());
+        assertEquals("", JsonParser.parseString(write("")).getAsString());
+    }
+
+    @Test
+    void readEventFoldsStreamUsage() throws IOException {
+        MessagesJson.StreamEvent event = new MessagesJson.StreamEvent();
+
+        read(event, "{\"type\":\"message_start\",\"message\":{\"id\":\"msg_1\",\"content\":[],"
+                + "\"usage\":{\"input_tokens\":120,\"cache_read_input_tokens\":100,"
+                + "\"cache_creation_input_tokens\":8,\"output_tokens\":1}}}");
+        assertEquals("message_start", event.type);
+
+        read(event, "{\"type\":\"content_block_delta\",\"index\":0,\"delta\":{\"type\":\"text_delta\",\"text\":\"Hi\"}}");
+        assertEquals("content_block_delta", event.type);
+        assertEquals("Hi", event.text);
+
+        // Output is cumulative; input repeated here must not replace message_start's
+        read(event, "{\"type\":\"message_delta\",\"delta\":{\"stop_reason\":\"end_turn\"},"
+                + "\"usage\":{\"input_tokens\":999,\"output_tokens\":5}}");
+        read(event, "{\"type\":\"message_delta\",\"delta\":{\"stop_reason\":null},\"usage\":{\"output_tokens\":42}}");
+        assertNull(event.text);
+
+        UsageTracker tracker = new UsageTracker();
+        event.usage.record(tracker, "npc");
+        UsageTracker.Totals totals = tracker.getTotals().get("npc");
+        assertEquals(120, totals.getInputTokens());
+        assertEquals(42, totals.getOutputTokens());
+        assertEquals(100, totals.getCacheReadTokens());
+        assertEquals(8, totals.getCacheWriteTokens());
+    }
+
+    @Test
+    void readEventWithoutUsageRecordsNothing() throws IOException {
+        MessagesJson.StreamEvent event = new MessagesJson.StreamEvent();
+        read(event, "{\"type\":\"ping\"}");
+        read(event, "{\"type\":\"message_stop\",\"usage\":null}");
+
+        UsageTracker tracker = new UsageTracker();
+        event.usage.record(tracker, "npc");
+        assertTrue(tracker.getTotals().isEmpty());
+    }
+
+    @Test
+    void readEventErrorType() throws IOException {
+        MessagesJson.StreamEvent event = new MessagesJson.StreamEvent();
+        read(event, "{\"type\":\"error\",\"error\":{\"type\":\"overloaded_error\",\"message\":\"Overloaded\"}}");
+        assertEquals("error", event.type);
+        assertEquals("overloaded_error", event.errorType);
+
+        // The event is reused; fields from the last one are cleared
+        read(event, "{\"type\":\"ping\"}");
+        assertNull(event.errorType);
+    }
+
+    private static String write(String value) throws IOException {
+        Buffer sink = new Buffer();
+        MessagesJson.writeString(sink, value);
+        return sink.readUtf8();
+    }
+
+    private static void read(MessagesJson.StreamEvent event, String json) throws IOException {
+        MessagesJson.readEvent(new StringReader(json), event);
+    }
+}
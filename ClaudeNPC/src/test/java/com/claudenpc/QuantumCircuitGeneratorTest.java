@@ -0,0 +1,109 @@
+package com.claudenpc;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Parity with quantum_circuit_generator.py
+ *
+ * The JSON files are the Python generator's checked-in output; if either side changes
+ * without the other, these fail.
+ */
+class QuantumCircuitGeneratorTest {
+
+    // Tests run from the module directory, next to python-scripts
+    private static final Path SCRIPTS = Paths.get("..", "python-scripts");
+
+    @Test
+    void circuitsMatchPythonGenerator() throws IOException {
+        List<Blueprint> expected = readCircuits(SCRIPTS.resolve("quantum_circuits.json"));
+
+        List<String> names = new ArrayList<>();
+        for (Blueprint circuit : expected) {
+            names.add(circuit.getName());
+        }
+        assertEquals(QuantumCircuitGenerator.getNames(), names, "circuit names");
+
+        for (Blueprint circuit : expected) {
+            Blueprint generated = QuantumCircuitGenerator.generate(circuit.getName());
+            assertNotNull(generated, circuit.getName());
+            assertSameBlueprint(circuit, generated);
+        }
+    }
+
+    @Test
+    void lookupTableMatchesPythonGenerator() throws IOException {
+        JsonObject root = readJson(SCRIPTS.resolve("phase_lookup_table.json"));
+        JsonArray entries = root.getAsJsonArray("entries");
+        QuantumCircuitGenerator.PhaseTable table = QuantumCircuitGenerator.generateLookupTable(entries.size());
+
+        assertEquals(root.get("max_signal").getAsInt(), table.getMaxSignal(), "max signal");
+        for (int step = 0; step < entries.size(); step++) {
+            JsonObject entry = entries.get(step).getAsJsonObject();
+            String at = "step " + step;
+            assertEquals(entry.get("phi").getAsDouble(), table.getPhi(step), at + " phi");
+            assertEquals(entry.get("alpha").getAsInt(), table.getAlpha(step), at + " alpha");
+            assertEquals(entry.get("omega").getAsInt(), table.getOmega(step), at + " omega");
+            assertEquals(entry.get("chest_items").getAsInt(), table.getChestItems(step), at + " chest items");
+            assertEquals(entry.get("is_viviani").getAsBoolean(), table.isViviani(step), at + " viviani");
+        }
+    }
+
+    private static void assertSameBlueprint(Blueprint expected, Blueprint generated) {
+        String name = expected.getName();
+        assertEquals(expected.getDescription(), generated.getDescription(), name + " description");
+        assertEquals(expected.getSizeX(), generated.getSizeX(), name + " size x");
+        assertEquals(expected.getSizeY(), generated.getSizeY(), name + " size y");
+        assertEquals(expected.getSizeZ(), generated.getSizeZ(), name + " size z");
+        assertEquals(expected.getBlockCount(), generated.getBlockCount(), name + " block count");
+        for (int i = 0; i < expected.getBlockCount(); i++) {
+            String at = name + " block " + i;
+            assertEquals(expected.getX(i), generated.getX(i), at + " x");
+            assertEquals(expected.getY(i), generated.getY(i), at + " y");
+            assertEquals(expected.getZ(i), generated.getZ(i), at + " z");
+            assertEquals(expected.getPaletteState(expected.getState(i)),
+                    generated.getPaletteState(generated.getState(i)), at + " state");
+        }
+    }
+
+    private static List<Blueprint> readCircuits(Path file) throws IOException {
+        List<Blueprint> circuits = new ArrayList<>();
+        for (JsonElement element : readJson(file).getAsJsonArray("circuits")) {
+            JsonObject circuit = element.getAsJsonObject();
+            BlueprintFile.Builder builder = new BlueprintFile.Builder(circuit.get("name").getAsString(),
+                    circuit.has("description") ? circuit.get("description").getAsString() : "");
+            JsonObject dimensions = circuit.getAsJsonObject("dimensions");
+            builder.size(dimensions.get("x").getAsInt(), dimensions.get("y").getAsInt(), dimensions.get("z").getAsInt());
+
+            for (JsonElement blockElement : circuit.getAsJsonArray("blocks")) {
+                JsonObject block = blockElement.getAsJsonObject();
+                JsonArray pos = block.getAsJsonArray("pos");
+                builder.add(pos.get(0).getAsInt(), pos.get(1).getAsInt(), pos.get(2).getAsInt(),
+                        BlueprintRegistry.stateString(block.get("block").getAsString(), block.getAsJsonObject("properties")));
+            }
+            circuits.add(builder.build());
+        }
+        return circuits;
+    }
+
+    private static JsonObject readJson(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return JsonParser.parseReader(reader).getAsJsonObject();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.claudenpc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * RateLimiter.TokenBucket at 60 a minute: one token a second, a burst of ten
+ *
+ * The refill is a second per token, far longer than the test runs, so the counts are exact.
+ */
+class TokenBucketTest {
+
+    private static final int RATE = 60;
+    private static final int BURST = 10;
+
+    @Test
+    void allowsBurstThenRefuses() {
+        RateLimiter.TokenBucket bucket = new RateLimiter.TokenBucket(RATE);
+        assertTrue(bucket.isFull());
+        assertEquals(0, bucket.nanosUntilAvailable());
+
+        for (int i = 0; i < BURST; i++) {
+            assertTrue(bucket.tryAcquire(), "token " + i);
+        }
+        assertFalse(bucket.tryAcquire(), "token past the burst");
+        assertFalse(bucket.isFull());
+
+        long wait = bucket.nanosUntilAvailable();
+        assertTrue(wait > 0 && wait <= TimeUnit.SECONDS.toNanos(1), "wait for the next token: " + wait);
+    }
+
+    @Test
+    void refundGivesTokenBack() {
+        RateLimiter.TokenBucket bucket = new RateLimiter.TokenBucket(RATE);
+        for (int i = 0; i < BURST; i++) {
+            bucket.tryAcquire();
+        }
+        assertFalse(bucket.tryAcquire());
+
+        bucket.refund();
+        assertEquals(0, bucket.nanosUntilAvailable());
+        assertTrue(bucket.tryAcquire(), "refunded token");
+        assertFalse(bucket.tryAcquire(), "only one token was refunded");
+
+        for (int i = 0; i < BURST; i++) {
+            bucket.refund();
+        }
+        assertTrue(bucket.isFull());
+    }
+}
@@ -0,0 +1,284 @@
+#!/usr/bin/env python3
+"""
+ClaudeNPC Python Worker
+Version: 0.1.0
+
+Long-lived interpreter used by the plugin's PythonBridge worker pool. Keeping the
+process alive means interpreter startup and imports such as quantum_circuit_generator
+are paid once instead of on every build request.
+
+Protocol (stdin -> requests, stdout -> responses):
+    Each frame is a 4-byte big-endian length followed by that many bytes of UTF-8 JSON.
+
+    {"id": 1, "type": "ping"}
+        -> {"id": 1, "ok": true, "version": "3.12.1"}
+    {"id": 2, "type": "exec", "code": "...", "env": {"KEY": "value"}}
+        -> {"id": 2, "exit_code": 0, "stdout": "...", "stderr": "..."}
+    {"id": 3, "type": "exec", "code": "...", "stream": true}
+        -> {"id": 3, "line": "..."}  (one frame per stdout line, as it is printed)
+        -> {"id": 3, "exit_code": 0, "stdout": "", "stderr": "..."}
+    {"id": 4, "type": "exec", "code": "...", "sandbox": {"cpu_seconds": 10, "memory_mb": 512,
+            "max_open_files": 64, "nice": 10, "allowed_env": ["PATH"]}}
+        -> {"id": 4, "exit_code": 0, "stdout": "...", "stderr": "...",
+            "usage": {"sandboxed": true, "cpu_seconds": 0.4, "max_rss_kb": 21000,
+                      "wall_seconds": 0.5, "limit": null}}
+
+Job output is captured per job, so print() inside a script never touches the
+protocol stream. The worker exits when stdin is closed.
+
+Sandboxed jobs run in a forked child, so they keep the warm imports but get their
+own rlimits (CPU time, address space, open files), a lower scheduling priority, an
+environment reduced to an allowlist and a private temporary working directory,
+which is deleted afterwards. The child's stdin and stdout point at /dev/null, so it
+can't read or forge protocol frames; its streamed lines and result come back over a
+private pipe and the worker frames them. Resource usage comes from wait4(). Where
+fork or the resource module is missing (Windows) sandboxed jobs are refused.
+"""
+
+import contextlib
+import io
+import json
+import os
+import shutil
+import signal
+import struct
+import sys
+import tempfile
+import time
+import traceback
+from typing import Optional
+
+try:
+    import resource
+except ImportError:  # Windows
+    resource = None
+
+HEADER = struct.Struct(">I")
+
+
+def read_frame(stream) -> Optional[dict]:
+    """Read one frame, or None once the plugin closes the pipe"""
+    header = stream.read(HEADER.size)
+    if len(header) < HEADER.size:
+        return None
+    (length,) = HEADER.unpack(header)
+    payload = stream.read(length)
+    if len(payload) < length:
+        return None
+    return json.loads(payload.decode("utf-8"))
+
+
+def write_frame(stream, message: dict) -> None:
+    """Write one frame and flush it straight away"""
+    payload = json.dumps(message).encode("utf-8")
+    stream.write(HEADER.pack(len(payload)))
+    stream.write(payload)
+    stream.flush()
+
+
+class LineStream(io.TextIOBase):
+    """stdout replacement that sends each complete line to the plugin straight away"""
+
+    def __init__(self, job_id, responses):
+        self.job_id = job_id
+        self.responses = responses
+        self.pending = ""
+
+    def writable(self) -> bool:
+        return True
+
+    def write(self, text: str) -> int:
+        self.pending += text
+        *lines, self.pending = self.pending.split("\n")
+        for line in lines:
+            write_frame(self.responses, {"id": self.job_id, "line": line})
+        return len(text)
+
+    def getvalue(self) -> str:
+        # Everything but an unterminated last line has already been sent
+        if self.pending:
+            write_frame(self.responses, {"id": self.job_id, "line": self.pending})
+            self.pending = ""
+        return ""
+
+
+def run_job(request: dict, responses) -> dict:
+    """Execute a script in a fresh namespace, capturing its output"""
+    code = request.get("code", "")
+    env = request.get("env") or {}
+
+    saved_env = dict(os.environ)
+    os.environ.update(env)
+
+    out = LineStream(request.get("id"), responses) if request.get("stream") else io.StringIO()
+    err = io.StringIO()
+    exit_code = 0
+    try:
+        with contextlib.redirect_stdout(out), contextlib.redirect_stderr(err):
+            try:
+                exec(compile(code, "<npc-script>", "exec"), {"__name__": "__main__"})
+            except SystemExit as e:
+                if e.code is None:
+                    exit_code = 0
+                elif isinstance(e.code, int):
+                    exit_code = e.code
+                else:
+                    print(e.code, file=sys.stderr)
+                    exit_code = 1
+            except BaseException:
+                traceback.print_exc()
+                exit_code = 1
+    finally:
+        os.environ.clear()
+        os.environ.update(saved_env)
+
+    return {"exit_code": exit_code, "stdout": out.getvalue(), "stderr": err.getvalue()}
+
+
+def apply_limits(sandbox: dict) -> None:
+    """Lower this process's limits; called in the forked child before the job runs"""
+    cpu = sandbox.get("cpu_seconds")
+    if cpu:
+        # The soft limit sends SIGXCPU; the hard limit a second later is SIGKILL
+        resource.setrlimit(resource.RLIMIT_CPU, (cpu, cpu + 1))
+    memory = sandbox.get("memory_mb")
+    if memory:
+        limit = memory * 1024 * 1024
+        resource.setrlimit(resource.RLIMIT_AS, (limit, limit))
+    files = sandbox.get("max_open_files")
+    if files:
+        resource.setrlimit(resource.RLIMIT_NOFILE, (files, files))
+    niceness = sandbox.get("nice")
+    if niceness:
+        os.nice(niceness)
+
+
+def run_sandboxed(request: dict, responses) -> dict:
+    """Run a job in a forked child with resource limits, reporting what it used"""
+    sandbox = request["sandbox"]
+    if resource is None or not hasattr(os, "fork"):
+        return {"exit_code": 1, "stdout": "",
+                "stderr": "Sandbox unavailable on this platform (needs fork and the resource module)",
+                "usage": {"sandboxed": False}}
+
+    allowed = set(sandbox.get("allowed_env") or [])
+    workdir = tempfile.mkdtemp(prefix="npc-job-")
+    read_fd, write_fd = os.pipe()
+    started = time.monotonic()
+
+    pid = os.fork()
+    if pid == 0:
+        # Child: never return into the worker loop
+        status = 0
+        pipe = os.fdopen(write_fd, "wb")
+        try:
+            os.close(read_fd)
+            # Cut the job off from the protocol pipes; everything goes back over the private one
+            devnull = os.open(os.devnull, os.O_RDWR)
+            os.dup2(devnull, 0)
+            os.dup2(devnull, 1)
+            os.close(devnull)
+            apply_limits(sandbox)
+            os.chdir(workdir)
+            env = {k: v for k, v in os.environ.items() if k in allowed}
+            env["TMPDIR"] = workdir
+            os.environ.clear()
+            os.environ.update(env)
+            tempfile.tempdir = workdir
+            result = run_job(request, pipe)
+        except BaseException:
+            result = {"exit_code": 1, "stdout": "", "stderr": traceback.format_exc()}
+        try:
+            write_frame(pipe, result)
+            pipe.close()
+        except BaseException:
+            status = 1
+        os._exit(status)
+
+    # Pass streamed lines on as they arrive, under the plugin's job id; the last other frame is the result
+    os.close(write_fd)
+    response = None
+    with os.fdopen(read_fd, "rb") as pipe:
+        try:
+            while True:
+                frame = read_frame(pipe)
+                if frame is None:
+                    break
+                if not isinstance(frame, dict):
+                    raise ValueError("frame is not an object")
+                if "line" in frame:
+                    write_frame(responses, {"id": request.get("id"), "line": str(frame["line"])})
+                else:
+                    response = frame
+        except (ValueError, TypeError):
+            # Garbage on the pipe - the job wrote to it behind our back
+            os.kill(pid, signal.SIGKILL)
+            response = {"exit_code": 1, "stdout": "", "stderr": "Job corrupted its result pipe"}
+    _, status, usage = os.wait4(pid, 0)
+    wall = time.monotonic() - started
+    shutil.rmtree(workdir, ignore_errors=True)
+
+    limit = None
+    if response is None:
+        # Killed before it could report - almost always a limit
+        response = {"exit_code": 1, "stdout": "", "stderr": ""}
+    # Only the fields we expect, in the types the plugin reads
+    exit_code = response.get("exit_code")
+    response = {"exit_code": exit_code if isinstance(exit_code, int) else 1,
+                "stdout": str(response.get("stdout", "")), "stderr": str(response.get("stderr", ""))}
+    if os.WIFSIGNALED(status):
+        sig = os.WTERMSIG(status)
+        limit = "cpu" if sig in (signal.SIGXCPU, signal.SIGKILL) else signal.Signals(sig).name
+        response["exit_code"] = 128 + sig
+        response["stderr"] += "Job killed by %s" % signal.Signals(sig).name
+    elif "MemoryError" in response.get("stderr", ""):
+        limit = "memory"
+    elif "Too many open files" in response.get("stderr", ""):
+        limit = "open_files"
+
+    response["usage"] = {
+        "sandboxed": True,
+        "cpu_seconds": usage.ru_utime + usage.ru_stime,
+        # ru_maxrss is kilobytes on Linux, bytes on macOS
+        "max_rss_kb": usage.ru_maxrss // 1024 if sys.platform == "darwin" else usage.ru_maxrss,
+        "wall_seconds": wall,
+        "limit": limit,
+    }
+    return response
+
+
+def main() -> None:
+    requests = sys.stdin.buffer
+    responses = sys.stdout.buffer
+
+    # Stray prints outside a job must not corrupt the protocol stream
+    sys.stdout = sys.stderr
+
+    sys.path.insert(0, os.getcwd())
+    try:
+        # Warm the import cache for the common case
+        import quantum_circuit_generator  # noqa: F401
+    except ImportError:
+        pass
+
+    while True:
+        request = read_frame(requests)
+        if request is None:
+            break
+
+        kind = request.get("type")
+        if kind == "ping":
+            response = {"ok": True, "version": sys.version.split()[0]}
+        elif kind == "exec" and request.get("sandbox"):
+            response = run_sandboxed(request, responses)
+        elif kind == "exec":
+            response = run_job(request, responses)
+        else:
+            response = {"exit_code": 1, "stdout": "", "stderr": "Unknown request type: %s" % kind}
+
+        response["id"] = request.get("id")
+        write_frame(responses, response)
+
+
+if __name__ == "__main__":
+    main()